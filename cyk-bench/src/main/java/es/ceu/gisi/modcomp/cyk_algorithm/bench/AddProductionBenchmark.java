@@ -0,0 +1,63 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.bench;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tiempo de cargar todas las producciones de una gramática con
+ * addProduction, partiendo de los símbolos ya declarados.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddProductionBenchmark {
+
+    @Param({"FEW", "ALL"})
+    public Grammars.Size grammar;
+
+    private List<String[]> productions;
+    private CYKAlgorithm cyk;
+
+    @Setup(Level.Trial)
+    public void loadProductions() {
+        productions = Grammars.productions(grammar);
+    }
+
+    @Setup(Level.Invocation)
+    public void declareSymbols() throws CYKAlgorithmException {
+        cyk = new CYKAlgorithm();
+        for (char symbol : Grammars.nonTerminals(grammar)) {
+            cyk.addNonTerminal(symbol);
+        }
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        cyk.setStartSymbol('S');
+    }
+
+    @Benchmark
+    public CYKAlgorithm addProductions() throws CYKAlgorithmException {
+        for (String[] production : productions) {
+            cyk.addProduction(production[0].charAt(0), production[1]);
+        }
+        return cyk;
+    }
+}
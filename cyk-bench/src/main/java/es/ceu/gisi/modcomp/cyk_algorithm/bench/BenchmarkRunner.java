@@ -0,0 +1,30 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanzador de los benchmarks que añade siempre el perfil de asignación de
+ * memoria de JMH (-prof gc), para ver los bytes reservados por operación
+ * junto al tiempo. Acepta las mismas opciones que el lanzador de JMH.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
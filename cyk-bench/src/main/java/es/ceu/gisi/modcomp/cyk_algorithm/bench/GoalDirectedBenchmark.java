@@ -0,0 +1,141 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.bench;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara isDerived con isDerivedGoalDirected en gramáticas en las que el
+ * reconocedor descendente llega a pocas celdas (una lista "a c a c ... a" y
+ * expresiones con suma y paréntesis) y en la de tantas a como b, en la que
+ * llega a casi todas y es más lento.
+ *
+ * Con BALANCED y 1.000 símbolos isDerivedGoalDirected tarda varios segundos
+ * por operación; se puede excluir con <code>-p grammar=LIST,EXPRESSION</code>.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoalDirectedBenchmark {
+
+    /**
+     * Gramáticas del benchmark.
+     */
+    public enum Shape {
+        /**
+         * L::=a | a c L, en FNC: pocas celdas alcanzables.
+         */
+        LIST("L::=AR|a\nR::=CL\nA::=a\nC::=c\n"),
+        /**
+         * E::=E p E | l E r | a, en FNC: suma y paréntesis.
+         */
+        EXPRESSION("E::=EX|LY|a\nX::=PE\nY::=ER\nP::=p\nL::=l\nR::=r\n"),
+        /**
+         * Tantas a como b: casi todas las celdas son alcanzables.
+         */
+        BALANCED("S::=AB|BA|SS|AY|BX\nX::=SA\nY::=SB\nA::=a\nB::=b\n");
+
+        private final String grammar;
+
+        Shape(String grammar) {
+            this.grammar = grammar;
+        }
+    }
+
+    @Param({"LIST", "EXPRESSION", "BALANCED"})
+    public Shape grammar;
+
+    @Param({"100", "1000"})
+    public int wordLength;
+
+    @Param({"true", "false"})
+    public boolean accepted;
+
+    private CompiledGrammar compiled;
+    private String word;
+
+    @Setup
+    public void setUp() throws CYKAlgorithmException, IOException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        cyk.loadGrammar(new StringReader(grammar.grammar));
+        compiled = cyk.compile();
+        word = word(grammar, wordLength, accepted, new Random(42));
+        if (compiled.isDerived(word) != accepted) {
+            throw new IllegalStateException("Palabra de prueba mal construida");
+        }
+    }
+
+    /**
+     * Las palabras rechazadas sólo fallan en el centro, para que no se
+     * descarten mirando el primer o el último símbolo.
+     */
+    private static String word(Shape shape, int length, boolean accepted, Random random) {
+        StringBuilder word = new StringBuilder();
+        switch (shape) {
+            case LIST:
+                while (word.length() + 2 < length) {
+                    word.append("ac");
+                }
+                word.append('a');
+                break;
+            case EXPRESSION:
+                int open = 0;
+                word.append('a');
+                while (word.length() + open < length) {
+                    int choice = random.nextInt(4);
+                    if (choice == 0) {
+                        word.append("pla");
+                        open++;
+                    } else if (choice == 1 && open > 0) {
+                        word.append('r');
+                        open--;
+                    } else {
+                        word.append("pa");
+                    }
+                }
+                while (open-- > 0) {
+                    word.append('r');
+                }
+                break;
+            default:
+                word.append(Grammars.word(length, true, random.nextLong()));
+                break;
+        }
+        if (!accepted) {
+            int middle = word.length() / 2;
+            char symbol = word.charAt(middle);
+            word.insert(middle, symbol);
+        }
+        return word.toString();
+    }
+
+    @Benchmark
+    public boolean isDerived() throws CYKAlgorithmException {
+        return compiled.isDerived(word);
+    }
+
+    @Benchmark
+    public boolean isDerivedGoalDirected() throws CYKAlgorithmException {
+        return compiled.isDerivedGoalDirected(word);
+    }
+}
@@ -0,0 +1,122 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.bench;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gramáticas y palabras que usan los benchmarks.
+ *
+ * Todas las gramáticas generan el mismo lenguaje, las palabras no vacías con
+ * tantas aes como bes, de modo que se pueden construir palabras aceptadas y
+ * rechazadas de cualquier longitud par.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class Grammars {
+
+    /**
+     * Tamaños de gramática disponibles.
+     */
+    enum Size {
+        /**
+         * Cinco no terminales: S, A, B, X e Y.
+         */
+        FEW,
+        /**
+         * Los 26 no terminales: los cinco anteriores más 21 copias de S, que
+         * aparecen en todas las celdas donde aparece S.
+         */
+        ALL
+    }
+
+    private static final String BASE_NON_TERMINALS = "SABXY";
+
+    private Grammars() {
+    }
+
+    /**
+     * @return Las producciones de la gramática en pares {cabeza, producción}.
+     */
+    static List<String[]> productions(Size size) {
+        List<String[]> productions = new ArrayList<>();
+        for (String[] production : new String[][]{
+            {"S", "AB"}, {"S", "BA"}, {"S", "SS"}, {"S", "AY"}, {"S", "BX"},
+            {"X", "SA"}, {"Y", "SB"}, {"A", "a"}, {"B", "b"}}) {
+            productions.add(production);
+        }
+        if (size == Size.ALL) {
+            for (char copy : extraNonTerminals()) {
+                String e = String.valueOf(copy);
+                productions.add(new String[]{"S", e + "S"});
+                for (String body : new String[]{"AB", "BA", "AY", "BX", e + "S", "S" + e}) {
+                    productions.add(new String[]{e, body});
+                }
+            }
+        }
+        return productions;
+    }
+
+    static List<Character> nonTerminals(Size size) {
+        List<Character> symbols = new ArrayList<>();
+        for (char symbol : BASE_NON_TERMINALS.toCharArray()) {
+            symbols.add(symbol);
+        }
+        if (size == Size.ALL) {
+            symbols.addAll(extraNonTerminals());
+        }
+        return symbols;
+    }
+
+    private static List<Character> extraNonTerminals() {
+        List<Character> symbols = new ArrayList<>();
+        for (char symbol = 'A'; symbol <= 'Z'; symbol++) {
+            if (BASE_NON_TERMINALS.indexOf(symbol) < 0) {
+                symbols.add(symbol);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Construye la gramática completa sobre un CYKAlgorithm nuevo.
+     */
+    static CYKAlgorithm build(Size size) throws CYKAlgorithmException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        for (char symbol : nonTerminals(size)) {
+            cyk.addNonTerminal(symbol);
+        }
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        cyk.setStartSymbol('S');
+        for (String[] production : productions(size)) {
+            cyk.addProduction(production[0].charAt(0), production[1]);
+        }
+        return cyk;
+    }
+
+    /**
+     * Genera una palabra aleatoria de longitud par.
+     *
+     * @param length Longitud de la palabra; si es impar se usa la siguiente.
+     * @param accepted TRUE para una palabra del lenguaje (mismo número de
+     * aes que de bes), FALSE para una con dos aes de más.
+     */
+    static String word(int length, boolean accepted, long seed) {
+        int half = (length + 1) / 2;
+        int as = accepted ? half : half + 1;
+        List<Character> symbols = new ArrayList<>();
+        for (int i = 0; i < 2 * half; i++) {
+            symbols.add(i < as ? 'a' : 'b');
+        }
+        Collections.shuffle(symbols, new Random(seed));
+        StringBuilder word = new StringBuilder();
+        for (char symbol : symbols) {
+            word.append(symbol);
+        }
+        return word.toString();
+    }
+}
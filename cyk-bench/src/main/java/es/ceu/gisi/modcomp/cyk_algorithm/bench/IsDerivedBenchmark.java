@@ -0,0 +1,66 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.bench;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tiempo de isDerived y de algorithmStateToString según la longitud de la
+ * palabra, el tamaño de la gramática y si la palabra se acepta o no.
+ *
+ * Las combinaciones más grandes (5.000 símbolos con los 26 no terminales)
+ * tardan varios segundos por operación; se pueden acotar con
+ * <code>-p wordLength=...</code>.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IsDerivedBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int wordLength;
+
+    @Param({"FEW", "ALL"})
+    public Grammars.Size grammar;
+
+    @Param({"true", "false"})
+    public boolean accepted;
+
+    private CYKAlgorithm cyk;
+    private String word;
+
+    @Setup
+    public void setUp() throws CYKAlgorithmException {
+        cyk = Grammars.build(grammar);
+        word = Grammars.word(wordLength, accepted, 42);
+        if (cyk.isDerived(word) != accepted) {
+            throw new IllegalStateException("Palabra de prueba mal construida");
+        }
+    }
+
+    @Benchmark
+    public boolean isDerived() throws CYKAlgorithmException {
+        return cyk.isDerived(word);
+    }
+
+    @Benchmark
+    public String algorithmStateToString() throws CYKAlgorithmException {
+        return cyk.algorithmStateToString(word);
+    }
+}
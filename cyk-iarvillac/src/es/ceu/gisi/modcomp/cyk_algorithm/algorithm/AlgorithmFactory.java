@@ -0,0 +1,121 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.interfaces.CYKAlgorithmInterface;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Crea el algoritmo de reconocimiento adecuado para una gramática escrita con
+ * una línea por no terminal, como "S::=aSb|AB|" (la alternativa vacía es la
+ * producción vacía). El axioma es el no terminal de la primera línea.
+ *
+ * Con {@link Engine#AUTO} se usa {@link CYKAlgorithm} si la gramática ya está
+ * en FNC y {@link EarleyAlgorithm} en otro caso, para no agrandar la
+ * gramática al convertirla. Como ambos dan siempre el mismo resultado en
+ * isDerived, también se puede elegir uno concreto según lo que se haya medido.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class AlgorithmFactory {
+
+    /**
+     * Algoritmo de reconocimiento.
+     */
+    public enum Engine {
+        /**
+         * {@link CYKAlgorithm}, convirtiendo antes la gramática a FNC si hace
+         * falta.
+         */
+        CYK,
+        /**
+         * {@link EarleyAlgorithm}.
+         */
+        EARLEY,
+        /**
+         * CYK si la gramática está en FNC y Earley si no.
+         */
+        AUTO
+    }
+
+    private AlgorithmFactory() {
+    }
+
+    /**
+     * @param grammar Texto de la gramática, que no se cierra.
+     * @param engine Algoritmo que se quiere usar.
+     * @return El algoritmo con la gramática ya cargada.
+     * @throws IOException Si falla la lectura.
+     * @throws CYKAlgorithmException Si alguna línea no tiene el formato
+     * esperado o alguna producción está repetida.
+     */
+    public static CYKAlgorithmInterface create(Reader grammar, Engine engine)
+            throws IOException, CYKAlgorithmException {
+        List<Character> heads = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        Set<Character> nonTerminals = new LinkedHashSet<>();
+        Set<Character> terminals = new LinkedHashSet<>();
+        GrammarReader.read(grammar, (nonterminal, production) -> {
+            nonTerminals.add(nonterminal);
+            for (int i = 0; i < production.length(); i++) {
+                char symbol = production.charAt(i);
+                if (Character.isUpperCase(symbol)) {
+                    nonTerminals.add(symbol);
+                } else {
+                    terminals.add(symbol);
+                }
+            }
+            heads.add(nonterminal);
+            bodies.add(production);
+        });
+        if (heads.isEmpty()) {
+            throw new CYKAlgorithmException();
+        }
+        boolean normalForm = true;
+        for (String body : bodies) {
+            normalForm &= (body.length() == 1 && Character.isLowerCase(body.charAt(0)))
+                    || (body.length() == 2 && Character.isUpperCase(body.charAt(0))
+                    && Character.isUpperCase(body.charAt(1)));
+        }
+
+        if (engine == Engine.AUTO) {
+            engine = normalForm ? Engine.CYK : Engine.EARLEY;
+        }
+        if (engine == Engine.CYK && !normalForm) {
+            CNFNormalizer normalizer = new CNFNormalizer(heads.get(0));
+            for (int i = 0; i < heads.size(); i++) {
+                normalizer.addProduction(heads.get(i), bodies.get(i));
+            }
+            return normalizer.normalize();
+        }
+        CYKAlgorithmInterface algorithm = engine == Engine.CYK ? new CYKAlgorithm() : new EarleyAlgorithm();
+        for (char nonterminal : nonTerminals) {
+            algorithm.addNonTerminal(nonterminal);
+        }
+        for (char terminal : terminals) {
+            algorithm.addTerminal(terminal);
+        }
+        algorithm.setStartSymbol(heads.get(0));
+        for (int i = 0; i < heads.size(); i++) {
+            algorithm.addProduction(heads.get(i), bodies.get(i));
+        }
+        return algorithm;
+    }
+
+    /**
+     * Igual que {@link #create(Reader, Engine)} leyendo un fichero en UTF-8.
+     */
+    public static CYKAlgorithmInterface create(Path grammar, Engine engine)
+            throws IOException, CYKAlgorithmException {
+        try (Reader reader = Files.newBufferedReader(grammar, StandardCharsets.UTF_8)) {
+            return create(reader, engine);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Reconocedor CYK que guarda la tabla por columnas: para cada longitud de
+ * subcadena y cada no terminal X, un vector de bits empaquetado en
+ * <code>long</code> cuyo bit s indica si X genera la subcadena que empieza en
+ * s. Así, para una regla X::=BC y un punto de corte k, la contribución a
+ * todas las posiciones de inicio se obtiene de una vez con
+ * <code>V[X][l] |= V[B][k] &amp; (V[C][l - k] &gt;&gt; k)</code>, procesando
+ * 64 posiciones en cada operación.
+ *
+ * Las reglas se agrupan por pares (B, C), de modo que el AND de cada par se
+ * calcula una sola vez por punto de corte aunque haya varios X::=BC, y se
+ * saltan los pares en los que alguno de los dos vectores está vacío.
+ *
+ * Los vectores se guardan seguidos en un único <code>long[]</code> que se
+ * reutiliza entre palabras del mismo hilo, igual que {@link CYKChart}, salvo
+ * para palabras de más de {@value CompiledGrammar#CACHED_CHART_MAX_LENGTH}
+ * símbolos, para que un hilo no retenga un búfer enorme. Ocupa unos n² / 8
+ * bytes por no terminal.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class BitParallelRecognizer {
+
+    private static final ThreadLocal<long[][]> BUFFERS = ThreadLocal.withInitial(() -> new long[2][0]);
+
+    private final int count;
+    //Pares (B, C) con alguna regla, y máscara de los X::=BC de cada par
+    private final int[] pairLeft;
+    private final int[] pairRight;
+    private final int[] pairHeads;
+
+    /**
+     * @param binaryRules binaryRules[B][C] = máscara de los X con X::=BC.
+     */
+    BitParallelRecognizer(int[][] binaryRules) {
+        this.count = binaryRules.length;
+        int pairs = 0;
+        for (int[] row : binaryRules) {
+            for (int heads : row) {
+                if (heads != 0) {
+                    pairs++;
+                }
+            }
+        }
+        pairLeft = new int[pairs];
+        pairRight = new int[pairs];
+        pairHeads = new int[pairs];
+        int next = 0;
+        for (int b = 0; b < count; b++) {
+            for (int c = 0; c < count; c++) {
+                if (binaryRules[b][c] != 0) {
+                    pairLeft[next] = b;
+                    pairRight[next] = c;
+                    pairHeads[next++] = binaryRules[b][c];
+                }
+            }
+        }
+    }
+
+    /**
+     * @param lexical Máscara de los no terminales que derivan cada símbolo de
+     * la palabra.
+     * @return Máscara de los no terminales que generan la palabra completa.
+     */
+    int recognize(int[] lexical) {
+        int n = lexical.length;
+        if (n == 0) {
+            return 0;
+        }
+        int words = (n + 63) >>> 6;
+        long size = (long) (n + 1) * count * words;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Palabra demasiado larga para la tabla por columnas: " + n);
+        }
+        long[][] buffers = n <= CompiledGrammar.CACHED_CHART_MAX_LENGTH ? BUFFERS.get() : new long[2][0];
+        if (buffers[0].length < size) {
+            buffers[0] = new long[(int) size];
+        } else {
+            Arrays.fill(buffers[0], 0, (int) size, 0);
+        }
+        if (buffers[1].length < words) {
+            buffers[1] = new long[words];
+        }
+        long[] vectors = buffers[0];
+        long[] and = buffers[1];
+        //nonEmpty[l * count + X]: si el vector de X para la longitud l tiene algún bit
+        boolean[] nonEmpty = new boolean[(n + 1) * count];
+
+        for (int s = 0; s < n; s++) {
+            for (int mask = lexical[s]; mask != 0; mask &= mask - 1) {
+                int x = Integer.numberOfTrailingZeros(mask);
+                vectors[vector(1, x, words) + (s >>> 6)] |= 1L << (s & 63);
+                nonEmpty[count + x] = true;
+            }
+        }
+
+        for (int length = 2; length <= n; length++) {
+            //Palabras de 64 bits que cubren los inicios 0..n-length
+            int used = (n - length + 64) >>> 6;
+            for (int split = 1; split < length; split++) {
+                int shiftWords = split >>> 6;
+                int shiftBits = split & 63;
+                for (int p = 0; p < pairHeads.length; p++) {
+                    int b = pairLeft[p];
+                    int c = pairRight[p];
+                    if (!nonEmpty[split * count + b] || !nonEmpty[(length - split) * count + c]) {
+                        continue;
+                    }
+                    int left = vector(split, b, words);
+                    int right = vector(length - split, c, words);
+                    long any = 0;
+                    for (int w = 0; w < used; w++) {
+                        //Bits s + split .. s + split + 63 del vector de C
+                        int from = w + shiftWords;
+                        long shifted = vectors[right + from] >>> shiftBits;
+                        if (shiftBits != 0 && from + 1 < words) {
+                            shifted |= vectors[right + from + 1] << (64 - shiftBits);
+                        }
+                        and[w] = vectors[left + w] & shifted;
+                        any |= and[w];
+                    }
+                    if (any == 0) {
+                        continue;
+                    }
+                    for (int heads = pairHeads[p]; heads != 0; heads &= heads - 1) {
+                        int x = Integer.numberOfTrailingZeros(heads);
+                        int target = vector(length, x, words);
+                        for (int w = 0; w < used; w++) {
+                            vectors[target + w] |= and[w];
+                        }
+                        nonEmpty[length * count + x] = true;
+                    }
+                }
+            }
+        }
+
+        int result = 0;
+        for (int x = 0; x < count; x++) {
+            if ((vectors[vector(n, x, words)] & 1L) != 0) {
+                result |= 1 << x;
+            }
+        }
+        return result;
+    }
+
+    private int vector(int length, int symbol, int words) {
+        return (length * count + symbol) * words;
+    }
+}
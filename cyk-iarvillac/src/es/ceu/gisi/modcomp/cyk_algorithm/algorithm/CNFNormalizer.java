@@ -0,0 +1,306 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Convierte una gramática independiente del contexto cualquiera a FNC para
+ * poder usarla con {@link CYKAlgorithm}.
+ *
+ * Las producciones pueden tener cualquier longitud, mezclar terminales y no
+ * terminales, ser unitarias (A::=B) o vacías (A::=""). La conversión sigue
+ * los pasos habituales: sustituir los terminales de las partes derechas
+ * largas por no terminales, partir las partes derechas de más de dos símbolos,
+ * eliminar las producciones vacías y las unitarias, y por último simplificar
+ * la gramática con {@link CYKAlgorithm#optimize()}.
+ *
+ * Al partir las producciones largas se comparten los no terminales nuevos:
+ * A::=aBCD y E::=BCD usan el mismo no terminal para "CD". Se agrupan por
+ * sufijos (X::=B Y, Y::=CD) o por prefijos (Y::=BC, X::=Y D), según con cuál
+ * salen menos no terminales nuevos para la gramática dada.
+ *
+ * Los no terminales nuevos son letras mayúsculas que no usa la gramática,
+ * empezando por la Z. Como en FNC no hay producciones vacías, la gramática
+ * resultante genera el mismo lenguaje salvo la palabra vacía.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class CNFNormalizer {
+
+    private final char startSymbol;
+    //Producciones de cada no terminal, en el orden en que aparecen
+    private final Map<Character, Set<String>> rules = new LinkedHashMap<>();
+    private final Set<Character> terminals = new LinkedHashSet<>();
+
+    /**
+     * @param startSymbol Axioma de la gramática, por ejemplo 'S'.
+     * @throws CYKAlgorithmException Si no es una letra mayúscula.
+     */
+    public CNFNormalizer(char startSymbol) throws CYKAlgorithmException {
+        if (!isNonTerminal(startSymbol)) {
+            throw new CYKAlgorithmException();
+        }
+        this.startSymbol = startSymbol;
+        rules.put(startSymbol, new LinkedHashSet<>());
+    }
+
+    /**
+     * Añade una producción. Las letras mayúsculas son no terminales y las
+     * minúsculas terminales.
+     *
+     * @param nonterminal Parte izquierda, por ejemplo 'S'.
+     * @param production Parte derecha, por ejemplo "aSb", o "" para la
+     * producción vacía.
+     * @throws CYKAlgorithmException Si algún símbolo no es una letra.
+     */
+    public void addProduction(char nonterminal, String production) throws CYKAlgorithmException {
+        if (!isNonTerminal(nonterminal)) {
+            throw new CYKAlgorithmException();
+        }
+        for (int i = 0; i < production.length(); i++) {
+            char symbol = production.charAt(i);
+            if (!isNonTerminal(symbol) && !isTerminal(symbol)) {
+                throw new CYKAlgorithmException();
+            }
+        }
+        rules.computeIfAbsent(nonterminal, key -> new LinkedHashSet<>()).add(production);
+        for (int i = 0; i < production.length(); i++) {
+            char symbol = production.charAt(i);
+            if (isNonTerminal(symbol)) {
+                rules.computeIfAbsent(symbol, key -> new LinkedHashSet<>());
+            } else {
+                terminals.add(symbol);
+            }
+        }
+    }
+
+    /**
+     * Construye la gramática en FNC equivalente.
+     *
+     * @return Un CYKAlgorithm nuevo con la gramática convertida y simplificada.
+     * @throws CYKAlgorithmException Si no quedan letras libres para los no
+     * terminales nuevos.
+     */
+    public CYKAlgorithm normalize() throws CYKAlgorithmException {
+        Map<Character, Set<String>> grammar = new LinkedHashMap<>();
+        for (Map.Entry<Character, Set<String>> entry : rules.entrySet()) {
+            grammar.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        Deque<Character> free = new ArrayDeque<>();
+        for (char symbol = 'Z'; symbol >= 'A'; symbol--) {
+            if (!grammar.containsKey(symbol)) {
+                free.add(symbol);
+            }
+        }
+
+        replaceTerminals(grammar, free);
+        binarize(grammar, free);
+        removeEmpty(grammar);
+        removeUnit(grammar);
+
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        for (char nonterminal : grammar.keySet()) {
+            cyk.addNonTerminal(nonterminal);
+        }
+        for (char terminal : terminals) {
+            cyk.addTerminal(terminal);
+        }
+        cyk.setStartSymbol(startSymbol);
+        for (Map.Entry<Character, Set<String>> entry : grammar.entrySet()) {
+            for (String production : entry.getValue()) {
+                cyk.addProduction(entry.getKey(), production);
+            }
+        }
+        cyk.optimize();
+        return cyk;
+    }
+
+    /**
+     * Sustituye cada terminal t de las partes derechas de dos o más símbolos
+     * por un no terminal cuya única producción es t, reutilizando uno de la
+     * gramática si ya lo hay.
+     */
+    private void replaceTerminals(Map<Character, Set<String>> grammar, Deque<Character> free)
+            throws CYKAlgorithmException {
+        Map<Character, Character> forTerminal = new HashMap<>();
+        for (Map.Entry<Character, Set<String>> entry : grammar.entrySet()) {
+            Set<String> productions = entry.getValue();
+            if (entry.getKey() != startSymbol && productions.size() == 1) {
+                String only = productions.iterator().next();
+                if (only.length() == 1 && isTerminal(only.charAt(0))) {
+                    forTerminal.putIfAbsent(only.charAt(0), entry.getKey());
+                }
+            }
+        }
+        Map<Character, Set<String>> added = new LinkedHashMap<>();
+        for (Set<String> productions : grammar.values()) {
+            List<String> rewritten = new ArrayList<>();
+            for (String production : productions) {
+                if (production.length() < 2) {
+                    rewritten.add(production);
+                    continue;
+                }
+                char[] symbols = production.toCharArray();
+                for (int i = 0; i < symbols.length; i++) {
+                    if (isTerminal(symbols[i])) {
+                        char terminal = symbols[i];
+                        Character nonterminal = forTerminal.get(terminal);
+                        if (nonterminal == null) {
+                            nonterminal = fresh(free);
+                            forTerminal.put(terminal, nonterminal);
+                            added.computeIfAbsent(nonterminal, key -> new LinkedHashSet<>()).add(String.valueOf(terminal));
+                        }
+                        symbols[i] = nonterminal;
+                    }
+                }
+                rewritten.add(new String(symbols));
+            }
+            productions.clear();
+            productions.addAll(rewritten);
+        }
+        grammar.putAll(added);
+    }
+
+    /**
+     * Parte las producciones de más de dos símbolos en producciones binarias,
+     * compartiendo los no terminales nuevos entre producciones con los mismos
+     * sufijos (o prefijos).
+     */
+    private void binarize(Map<Character, Set<String>> grammar, Deque<Character> free)
+            throws CYKAlgorithmException {
+        Set<String> suffixes = new HashSet<>();
+        Set<String> prefixes = new HashSet<>();
+        for (Set<String> productions : grammar.values()) {
+            for (String production : productions) {
+                for (int i = 2; i < production.length(); i++) {
+                    suffixes.add(production.substring(production.length() - i));
+                    prefixes.add(production.substring(0, i));
+                }
+            }
+        }
+        boolean bySuffix = suffixes.size() <= prefixes.size();
+
+        Map<String, Character> shared = new HashMap<>();
+        Map<Character, Set<String>> added = new LinkedHashMap<>();
+        for (Set<String> productions : grammar.values()) {
+            List<String> rewritten = new ArrayList<>();
+            for (String production : productions) {
+                String result = production;
+                while (result.length() > 2) {
+                    //Se sustituye el sufijo (o prefijo) de longitud 2 por un no terminal, y se repite.
+                    //Como los no terminales nuevos ya representan el resto del sufijo, basta con
+                    //compartirlos por esos dos símbolos
+                    String part = bySuffix ? result.substring(result.length() - 2) : result.substring(0, 2);
+                    Character nonterminal = shared.get(part);
+                    if (nonterminal == null) {
+                        nonterminal = fresh(free);
+                        shared.put(part, nonterminal);
+                        added.computeIfAbsent(nonterminal, k -> new LinkedHashSet<>()).add(part);
+                    }
+                    result = bySuffix
+                            ? result.substring(0, result.length() - 2) + nonterminal
+                            : nonterminal + result.substring(2);
+                }
+                rewritten.add(result);
+            }
+            productions.clear();
+            productions.addAll(rewritten);
+        }
+        grammar.putAll(added);
+    }
+
+    /**
+     * Elimina las producciones vacías, añadiendo para cada producción las
+     * variantes sin los no terminales que pueden generar la palabra vacía.
+     * Las partes derechas ya tienen como mucho dos símbolos.
+     */
+    private void removeEmpty(Map<Character, Set<String>> grammar) {
+        Set<Character> nullable = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Character, Set<String>> entry : grammar.entrySet()) {
+                if (nullable.contains(entry.getKey())) {
+                    continue;
+                }
+                for (String production : entry.getValue()) {
+                    boolean all = true;
+                    for (int i = 0; i < production.length() && all; i++) {
+                        all = nullable.contains(production.charAt(i));
+                    }
+                    if (all) {
+                        nullable.add(entry.getKey());
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        for (Set<String> productions : grammar.values()) {
+            List<String> variants = new ArrayList<>();
+            for (String production : productions) {
+                if (production.length() == 2) {
+                    if (nullable.contains(production.charAt(0))) {
+                        variants.add(production.substring(1));
+                    }
+                    if (nullable.contains(production.charAt(1))) {
+                        variants.add(production.substring(0, 1));
+                    }
+                }
+            }
+            productions.addAll(variants);
+            productions.remove("");
+        }
+    }
+
+    /**
+     * Elimina las producciones unitarias A::=B, dando a A todas las
+     * producciones no unitarias de los no terminales a los que se llega desde
+     * A por cadenas de producciones unitarias.
+     */
+    private void removeUnit(Map<Character, Set<String>> grammar) {
+        Map<Character, Set<String>> result = new LinkedHashMap<>();
+        for (char nonterminal : grammar.keySet()) {
+            Set<String> productions = new LinkedHashSet<>();
+            List<Character> reached = new ArrayList<>();
+            reached.add(nonterminal);
+            for (int i = 0; i < reached.size(); i++) {
+                for (String production : grammar.get(reached.get(i))) {
+                    if (production.length() == 1 && isNonTerminal(production.charAt(0))) {
+                        if (!reached.contains(production.charAt(0))) {
+                            reached.add(production.charAt(0));
+                        }
+                    } else {
+                        productions.add(production);
+                    }
+                }
+            }
+            result.put(nonterminal, productions);
+        }
+        grammar.putAll(result);
+    }
+
+    private static char fresh(Deque<Character> free) throws CYKAlgorithmException {
+        if (free.isEmpty()) {
+            throw new CYKAlgorithmException();
+        }
+        return free.poll();
+    }
+
+    private static boolean isNonTerminal(char symbol) {
+        return symbol >= 'A' && symbol <= 'Z';
+    }
+
+    private static boolean isTerminal(char symbol) {
+        return symbol >= 'a' && symbol <= 'z';
+    }
+}
@@ -2,11 +2,17 @@ package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
 
 import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
 import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.interfaces.CYKAlgorithmInterface;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Esta clase contiene la implementación de la interfaz CYKAlgorithmInterface
@@ -15,13 +21,32 @@ import java.util.Set;
  *
  * @author Sergio Saugar García <sergio.saugargarcia@ceu.es>
  */
-public class CYKAlgorithm implements CYKAlgorithmInterface {
+public class CYKAlgorithm implements CYKAlgorithmInterface, CompilableGrammar {
 
     List<Character> nonTerminals = new ArrayList<>();
     List<Character> terminals = new ArrayList<>();
     char startSymbol;
     HashMap<Character, List<String>> productions = new HashMap<>();
     HashMap<String, List<Character>> inverseProductions = new HashMap<>();
+    //Máscaras de las letras que son no terminales / terminales, para validar en O(1)
+    int nonTerminalMask;
+    int terminalMask;
+
+    //Última gramática compilada, se descarta cada vez que cambia la gramática
+    CompiledGrammar compiled;
+    //Se incrementa cada vez que cambia la gramática, para invalidar la caché
+    long grammarVersion;
+    //Caché de resultados de isDerived, null si está desactivada
+    DerivationCache cache;
+    //Métricas de isDerived, null si están desactivadas
+    RecognitionMetrics metrics;
+    //Longitud de palabra a partir de la cual se usa el algoritmo de Valiant
+    int valiantThreshold = DEFAULT_VALIANT_THRESHOLD;
+
+    /**
+     * Umbral por defecto para {@link #setValiantThreshold(int)}.
+     */
+    public static final int DEFAULT_VALIANT_THRESHOLD = 1024;
     
     @Override
     /**
@@ -31,12 +56,15 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * @throws CYKAlgorithmException Si el elemento no es una letra mayúscula.
      */
     public void addNonTerminal(char nonterminal) throws CYKAlgorithmException {
-        if(!Character.isUpperCase(nonterminal)){
+        //Sólo letras de la A a la Z: la gramática compilada usa una máscara de 26 bits
+        if(nonterminal < 'A' || nonterminal > 'Z'){
             throw new CYKAlgorithmException();
-        }else if(nonTerminals.contains(nonterminal)){
+        }else if(isNonTerminal(nonterminal)){
             throw new CYKAlgorithmException();
-        }else if(Character.isUpperCase(nonterminal)){
+        }else{
+            grammarChanged();
             nonTerminals.add(nonterminal);
+            nonTerminalMask |= 1 << (nonterminal - 'A');
         }
     }
 
@@ -48,12 +76,14 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * @throws CYKAlgorithmException Si el elemento no es una letra minúscula.
      */
     public void addTerminal(char terminal) throws CYKAlgorithmException {
-        if(!Character.isLowerCase(terminal)){
+        if(terminal < 'a' || terminal > 'z'){
             throw new CYKAlgorithmException();
-        }else if(terminals.contains(terminal)){
+        }else if(isTerminal(terminal)){
             throw new CYKAlgorithmException();
-        }else if(Character.isLowerCase(terminal)){
+        }else{
+            grammarChanged();
             terminals.add(terminal);
+            terminalMask |= 1 << (terminal - 'a');
         }
     }
 
@@ -67,9 +97,12 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * conjunto de elementos no terminales.
      */
     public void setStartSymbol(char nonterminal) throws CYKAlgorithmException {
-        if(nonTerminals.contains(nonterminal)){
+        if(isNonTerminal(nonterminal)){
+            if(startSymbol != nonterminal){
+                grammarChanged();
+            }
             startSymbol = nonterminal;
-        }else if(!nonTerminals.contains(nonterminal)){
+        }else{
             throw new CYKAlgorithmException();
         }
     }
@@ -86,108 +119,96 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * previamente.
      */
     public void addProduction(char nonterminal, String production) throws CYKAlgorithmException {
-        
-        if(nonTerminals.contains(nonterminal) && production.length() == 2){
-            if(production.equals(production.toUpperCase())){
-                if(nonTerminals.contains(production.charAt(0)) && nonTerminals.contains(production.charAt(1))){
-                    if(productions.containsKey(nonterminal)){
-                        List<String> productionsOfNonterminal = productions.get(nonterminal);
-                        
-                        if(productionsOfNonterminal.contains(production)){
-                            throw new CYKAlgorithmException();
-                        }else{
-                            productionsOfNonterminal.add(production);
-                        }
-                    }else{
-                        List<String> productionsOfNonterminal = new ArrayList<>();
-                        productions.put(nonterminal, productionsOfNonterminal);
-                        productionsOfNonterminal.add(production);
-                    }
-                }else{
-                    throw new CYKAlgorithmException();
-                }
-            }else{
+        if(!isNonTerminal(nonterminal)){
+            throw new CYKAlgorithmException();
+        }else if(production.length() == 2){
+            if(!isNonTerminal(production.charAt(0)) || !isNonTerminal(production.charAt(1))){
                 throw new CYKAlgorithmException();
             }
-        }else if(nonTerminals.contains(nonterminal) && production.length() == 1){
-            if(production.equals(production.toLowerCase())){
-                if(terminals.contains(production.charAt(0))){
-                    if(productions.containsKey(nonterminal)){
-                        List<String> productionsOfNonterminal = productions.get(nonterminal);
-                        
-                        if(productionsOfNonterminal.contains(production)){
-                            throw new CYKAlgorithmException();
-                        }else{
-                            productionsOfNonterminal.add(production);
-                        }
-                    }else{
-                        List<String> productionsOfNonterminal = new ArrayList<>();
-                        productions.put(nonterminal, productionsOfNonterminal);
-                        productionsOfNonterminal.add(production);
-                    }
-                }else{
-                    throw new CYKAlgorithmException();
-                }
-            }else{
+        }else if(production.length() == 1){
+            if(!isTerminal(production.charAt(0))){
                 throw new CYKAlgorithmException();
             }
-        }else if(!nonTerminals.contains(nonterminal)){
-            throw new CYKAlgorithmException();
-        }else if(production.length() > 2){
+        }else{
             throw new CYKAlgorithmException();
         }
         
-        //Esta parte es para rellenar el HashMap inverso que se necesitará para hacer el algoritmo
-        if(nonTerminals.contains(nonterminal) && production.length() == 2){
-            if(production.equals(production.toUpperCase())){
-                if(nonTerminals.contains(production.charAt(0)) && nonTerminals.contains(production.charAt(1))){
-                    if(inverseProductions.containsKey(production)){
-                        List<Character> nonTerminalsForProduction = inverseProductions.get(production);
-                        
-                        if(nonTerminalsForProduction.contains(nonterminal)){
-                            throw new CYKAlgorithmException();
-                        }else{
-                            nonTerminalsForProduction.add(nonterminal);
-                        }
-                    }else{
-                        List<Character> nonTerminalsForProduction = new ArrayList<>();
-                        inverseProductions.put(production, nonTerminalsForProduction);
-                        nonTerminalsForProduction.add(nonterminal);
-                    }
-                }else{
-                    throw new CYKAlgorithmException();
-                }
-            }else{
-                throw new CYKAlgorithmException();
+        //El índice inverso tiene como mucho un no terminal por letra, así que comprobar duplicados es O(1)
+        List<Character> nonTerminalsForProduction = inverseProductions.computeIfAbsent(production, key -> new ArrayList<>());
+        if(nonTerminalsForProduction.contains(nonterminal)){
+            throw new CYKAlgorithmException();
+        }
+        grammarChanged();
+        nonTerminalsForProduction.add(nonterminal);
+        productions.computeIfAbsent(nonterminal, key -> new ArrayList<>()).add(production);
+    }
+
+    /**
+     * Sustituye la gramática actual por la que se lee del texto, con una línea
+     * por no terminal en el mismo formato que devuelve getProductions, por
+     * ejemplo "S::=AB|BC". Los terminales y no terminales se añaden según
+     * aparecen, el axioma es el no terminal de la primera línea y se ignoran
+     * las líneas en blanco.
+     *
+     * @param reader Origen del texto de la gramática, que no se cierra.
+     * @throws IOException Si falla la lectura.
+     * @throws CYKAlgorithmException Si alguna línea no tiene el formato
+     * esperado o alguna producción no está en FNC o está repetida. La gramática
+     * queda cargada sólo hasta esa línea.
+     */
+    public void loadGrammar(Reader reader) throws IOException, CYKAlgorithmException {
+        removeGrammar();
+        GrammarReader.read(reader, (nonterminal, production) -> {
+            declareSymbol(nonterminal);
+            if(startSymbol == 0){
+                setStartSymbol(nonterminal);
             }
-        }else if(nonTerminals.contains(nonterminal) && production.length() == 1){
-            if(production.equals(production.toLowerCase())){
-                if(terminals.contains(production.charAt(0))){
-                    if(inverseProductions.containsKey(production)){
-                        List<Character> nonTerminalsForProduction = inverseProductions.get(production);
-                        
-                        if(nonTerminalsForProduction.contains(nonterminal)){
-                            throw new CYKAlgorithmException();
-                        }else{
-                            nonTerminalsForProduction.add(nonterminal);
-                        }
-                    }else{
-                        List<Character> nonTerminalsForProduction = new ArrayList<>();
-                        inverseProductions.put(production, nonTerminalsForProduction);
-                        nonTerminalsForProduction.add(nonterminal);
-                    }
-                }else{
-                    throw new CYKAlgorithmException();
-                }
-            }else{
-                throw new CYKAlgorithmException();
+            for(int i = 0; i < production.length(); i++){
+                declareSymbol(production.charAt(i));
             }
-        }else if(!nonTerminals.contains(nonterminal)){
-            throw new CYKAlgorithmException();
-        }else if(production.length() > 2){
-            throw new CYKAlgorithmException();
+            addProduction(nonterminal, production);
+        });
+    }
+
+    /**
+     * Igual que {@link #loadGrammar(Reader)} leyendo un fichero en UTF-8.
+     *
+     * @param file Fichero con la gramática.
+     * @throws IOException Si no se puede leer el fichero.
+     * @throws CYKAlgorithmException Si el contenido no es una gramática válida
+     * en FNC.
+     */
+    public void loadGrammar(Path file) throws IOException, CYKAlgorithmException {
+        try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+            loadGrammar(reader);
         }
-        
+    }
+
+    /**
+     * Añade el símbolo como terminal o no terminal si todavía no lo es.
+     */
+    private void declareSymbol(char symbol) throws CYKAlgorithmException {
+        if(Character.isUpperCase(symbol)){
+            if(!isNonTerminal(symbol)){
+                addNonTerminal(symbol);
+            }
+        }else if(!isTerminal(symbol)){
+            addTerminal(symbol);
+        }
+    }
+
+    /**
+     * @return TRUE si el símbolo es uno de los no terminales de la gramática.
+     */
+    private boolean isNonTerminal(char symbol) {
+        return symbol >= 'A' && symbol <= 'Z' && (nonTerminalMask & (1 << (symbol - 'A'))) != 0;
+    }
+
+    /**
+     * @return TRUE si el símbolo es uno de los terminales de la gramática.
+     */
+    private boolean isTerminal(char symbol) {
+        return symbol >= 'a' && symbol <= 'z' && (terminalMask & (1 << (symbol - 'a'))) != 0;
     }
 
     @Override
@@ -204,52 +225,298 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * gramática es vacía o si el autómata carece de axioma.
      */
     public boolean isDerived(String word) throws CYKAlgorithmException {
-        int n = word.length();
-        List<List<Set<Character>>> table = new ArrayList<>();
-        
-        for(int i = 0; i < n; i++){
-            if(!terminals.contains(word.charAt(i))){
+        if(cache == null){
+            return recognize(word);
+        }
+        Boolean cached = cache.get(grammarVersion, word);
+        if(cached != null){
+            return cached;
+        }
+        boolean result = recognize(word);
+        cache.put(grammarVersion, word, result);
+        return result;
+    }
+
+    /**
+     * Igual que isDerived para cualquier secuencia de caracteres, por ejemplo
+     * un StringBuilder o un CharBuffer.
+     *
+     * @param word La palabra a verificar.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public boolean isDerived(CharSequence word) throws CYKAlgorithmException {
+        return isDerived(word, 0, word.length());
+    }
+
+    /**
+     * Igual que isDerived para el trozo de una secuencia de caracteres (por
+     * ejemplo un CharBuffer) que empieza en <code>offset</code> y tiene
+     * longitud <code>length</code>. Sólo se copia el trozo a un String si
+     * están activadas la caché o las métricas.
+     *
+     * @param word Secuencia que contiene la palabra.
+     * @param offset Posición del primer símbolo de la palabra.
+     * @param length Longitud de la palabra.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public boolean isDerived(CharSequence word, int offset, int length) throws CYKAlgorithmException {
+        if(cache == null && metrics == null){
+            return compile().isDerived(word, offset, length);
+        }
+        return isDerived(word.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * Igual que isDerived con la palabra dada como índices de terminales, en
+     * el orden en que se añadieron los terminales a la gramática. Ver
+     * {@link CompiledGrammar#isDerived(int[])}.
+     *
+     * @param tokens Índices de los terminales de la palabra.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si algún índice no corresponde a un
+     * terminal o si la gramática carece de axioma.
+     */
+    public boolean isDerived(int[] tokens) throws CYKAlgorithmException {
+        CompiledGrammar grammar = compile();
+        if(cache == null && metrics == null){
+            return grammar.isDerived(tokens);
+        }
+        char[] word = new char[tokens.length];
+        for(int i = 0; i < tokens.length; i++){
+            if(tokens[i] < 0 || tokens[i] >= grammar.terminalCount()){
                 throw new CYKAlgorithmException();
             }
+            word[i] = grammar.terminalSymbol(tokens[i]);
         }
-        for (int i = 0; i < n; i++) {
-            table.add(new ArrayList<>());
-            for (int j = 0; j < n; j++) {
-                table.get(i).add(new HashSet<>());
-            }
+        return isDerived(new String(word));
+    }
+
+    private boolean recognize(String word) throws CYKAlgorithmException {
+        if(metrics == null){
+            return compile().isDerived(word);
         }
+        return compile().isDerived(word, metrics);
+    }
 
-        for (int i = 0; i < n; i++) {
-            char terminal = word.charAt(i);
-            List<Character> nonTerminals = inverseProductions.get(Character.toString(terminal));
-            if (nonTerminals != null) {
-                for (char nonTerminal : nonTerminals) {
-                    table.get(i).get(0).add(nonTerminal);
-                }
+    /**
+     * Activa la recogida de métricas en isDerived (celdas calculadas, puntos
+     * de corte, búsquedas de reglas, memoria y latencias). Si ya estaban
+     * activadas devuelve las mismas.
+     *
+     * @return Las métricas, que se pueden consultar o publicar por JMX.
+     */
+    public RecognitionMetrics enableMetrics() {
+        if(metrics == null){
+            metrics = new RecognitionMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Desactiva la recogida de métricas en isDerived.
+     */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /**
+     * @return Las métricas de isDerived, o null si están desactivadas.
+     */
+    public RecognitionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Activa una caché LRU delante de isDerived, que se vacía sola cada vez
+     * que cambia la gramática. Sustituye a la caché anterior, si la había.
+     *
+     * @param maxEntries Número máximo de palabras guardadas.
+     * @param maxBytes Memoria máxima aproximada que pueden ocupar, en bytes.
+     * @return La caché, para consultar sus estadísticas.
+     */
+    public DerivationCache enableCache(int maxEntries, long maxBytes) {
+        cache = new DerivationCache(maxEntries, maxBytes);
+        return cache;
+    }
+
+    /**
+     * Desactiva la caché de isDerived.
+     */
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * @return La caché de isDerived, o null si está desactivada.
+     */
+    public DerivationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Descarta la gramática compilada y los resultados guardados en caché.
+     */
+    private void grammarChanged() {
+        compiled = null;
+        grammarVersion++;
+    }
+    
+
+    /**
+     * Simplifica la gramática sin cambiar el lenguaje que genera: elimina los
+     * no terminales improductivos y los inaccesibles desde el axioma junto con
+     * sus producciones, y une los no terminales que tienen las mismas
+     * producciones. Con menos no terminales cada celda de la tabla cuesta
+     * menos de calcular. Los terminales no se modifican.
+     *
+     * @return Número de no terminales eliminados.
+     * @throws CYKAlgorithmException Si la gramática carece de axioma.
+     */
+    public int optimize() throws CYKAlgorithmException {
+        if(startSymbol == 0){
+            throw new CYKAlgorithmException();
+        }
+        GrammarOptimizer optimizer = new GrammarOptimizer(nonTerminals, productions, startSymbol);
+        optimizer.optimize();
+        int removed = nonTerminals.size() - optimizer.nonTerminals().size();
+
+        grammarChanged();
+        nonTerminals = optimizer.nonTerminals();
+        nonTerminalMask = 0;
+        for (char nonterminal : nonTerminals) {
+            nonTerminalMask |= 1 << (nonterminal - 'A');
+        }
+        productions = new HashMap<>(optimizer.productions());
+        inverseProductions = new HashMap<>();
+        for (char nonterminal : nonTerminals) {
+            for (String production : productions.getOrDefault(nonterminal, new ArrayList<>())) {
+                inverseProductions.computeIfAbsent(production, key -> new ArrayList<>()).add(nonterminal);
             }
         }
+        return removed;
+    }
 
-        for (int j = 1; j < n; j++) {
-            for (int i = 0; i < n - j; i++) {
-                for (int k = 0; k < j; k++) {
-                    Set<Character> nonTerminals1 = table.get(i).get(k);
-                    Set<Character> nonTerminals2 = table.get(i + k + 1).get(j - k - 1);
-                    for (char nonTerminal1 : nonTerminals1) {
-                        for (char nonTerminal2 : nonTerminals2) {
-                            String production = Character.toString(nonTerminal1) + Character.toString(nonTerminal2);
-                            List<Character> nonTerminals = inverseProductions.get(production);
-                            if (nonTerminals != null) {
-                                table.get(i).get(j).addAll(nonTerminals);
-                            }
-                        }
-                    }
+    /**
+     * Copia la gramática a una {@link SymbolGrammar}, en la que cada letra es
+     * un símbolo de un carácter. Los no terminales y terminales reciben los
+     * índices en el orden en que se añadieron.
+     *
+     * @return Una gramática independiente de ésta con las mismas producciones.
+     * @throws CYKAlgorithmException Si la gramática carece de axioma.
+     */
+    public SymbolGrammar toSymbolGrammar() throws CYKAlgorithmException {
+        if(startSymbol == 0){
+            throw new CYKAlgorithmException();
+        }
+        SymbolGrammar grammar = new SymbolGrammar();
+        for(char nonterminal : nonTerminals){
+            grammar.addNonTerminal(String.valueOf(nonterminal));
+        }
+        for(char terminal : terminals){
+            grammar.addTerminal(String.valueOf(terminal));
+        }
+        grammar.setStartSymbol(String.valueOf(startSymbol));
+        for(char nonterminal : nonTerminals){
+            for(String production : productions.getOrDefault(nonterminal, new ArrayList<>())){
+                if(production.length() == 2){
+                    grammar.addProduction(String.valueOf(nonterminal), production.substring(0, 1), production.substring(1));
+                }else{
+                    grammar.addProduction(String.valueOf(nonterminal), production);
                 }
             }
         }
+        return grammar;
+    }
 
-        return table.get(0).get(n - 1).contains(startSymbol);
+    /**
+     * Igual que isDerived pero evaluando sólo las celdas a las que se llega
+     * desde el axioma. Ver {@link CompiledGrammar#isDerivedGoalDirected(String)}.
+     *
+     * @param word La palabra a verificar.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public boolean isDerivedGoalDirected(String word) throws CYKAlgorithmException {
+        return compile().isDerivedGoalDirected(word);
+    }
+
+    /**
+     * Igual que isDerived pero con la tabla guardada como vectores de bits
+     * por no terminal y longitud. Ver
+     * {@link CompiledGrammar#isDerivedBitParallel(String)}.
+     *
+     * @param word La palabra a verificar.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public boolean isDerivedBitParallel(String word) throws CYKAlgorithmException {
+        return compile().isDerivedBitParallel(word);
+    }
+
+    /**
+     * Igual que isDerived pero calculando en paralelo las celdas de cada
+     * diagonal de la tabla. Sólo compensa para palabras muy largas.
+     *
+     * @param word La palabra a verificar.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public boolean isDerivedParallel(String word) throws CYKAlgorithmException {
+        return compile().isDerivedParallel(word);
+    }
+
+    /**
+     * Comprueba una lista de palabras calculando una sola vez la parte de la
+     * tabla que corresponde a los prefijos que comparten.
+     *
+     * @param words Las palabras a verificar.
+     * @return Un BitSet cuyo bit i está activo si y sólo si la palabra i
+     * pertenece al lenguaje.
+     * @throws CYKAlgorithmException Si alguna palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public BitSet isDerivedAllSharingPrefixes(List<String> words) throws CYKAlgorithmException {
+        return compile().isDerivedAllSharingPrefixes(words);
+    }
+
+    /**
+     * Crea un reconocedor incremental sobre la gramática actual, al que se le
+     * van añadiendo los símbolos de la palabra de uno en uno. Los cambios
+     * posteriores en la gramática no le afectan.
+     *
+     * @return Un reconocedor vacío.
+     * @throws CYKAlgorithmException Si la gramática carece de axioma.
+     */
+    public IncrementalRecognizer newIncrementalRecognizer() throws CYKAlgorithmException {
+        return compile().newIncrementalRecognizer();
+    }
+
+    /**
+     * Comprueba una lista de palabras en paralelo sobre la gramática compilada.
+     *
+     * @param words Las palabras a verificar.
+     * @return Un BitSet cuyo bit i está activo si y sólo si la palabra i
+     * pertenece al lenguaje.
+     * @throws CYKAlgorithmException Si alguna palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public BitSet isDerivedAll(List<String> words) throws CYKAlgorithmException {
+        return compile().isDerivedAll(words);
+    }
+
+    /**
+     * Igual que {@link #isDerivedAll(List)} pero recibiendo un Stream.
+     */
+    public BitSet isDerivedAll(Stream<String> words) throws CYKAlgorithmException {
+        return compile().isDerivedAll(words);
     }
-    
 
     @Override
     /**
@@ -268,60 +535,110 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * gramática es vacía o si el autómata carece de axioma.
      */
     public String algorithmStateToString(String word) throws CYKAlgorithmException {
-        int n = word.length();
-        List<List<Set<Character>>> table = new ArrayList<>();
-    
-        for (int i = 0; i < n; i++) {
-            if (!terminals.contains(word.charAt(i))) {
-                throw new CYKAlgorithmException();
-            }
-        }
-    
-        for (int i = 0; i < n; i++) {
-            table.add(new ArrayList<>());
-            for (int j = 0; j < n; j++) {
-                table.get(i).add(new HashSet<>());
-            }
-        }
+        return compile().algorithmStateToString(word);
+    }
 
-        for (int i = 0; i < n; i++) {
-            char terminal = word.charAt(i);
-            List<Character> nonTerminals = inverseProductions.get(Character.toString(terminal));
-            if (nonTerminals != null) {
-                for (char nonTerminal : nonTerminals) {
-                table.get(i).get(0).add(nonTerminal);
-                }
-            }
-        }
+    /**
+     * Ejecuta el algoritmo una sola vez y devuelve tanto el resultado como la
+     * tabla calculada, que se puede escribir en cualquier Appendable sin
+     * construir un String intermedio.
+     *
+     * @param word La palabra a verificar.
+     * @return El resultado del algoritmo.
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public CYKResult parse(String word) throws CYKAlgorithmException {
+        return compile().parse(word);
+    }
 
-        for (int j = 1; j < n; j++) {
-            for (int i = 0; i < n - j; i++) {
-                for (int k = 0; k < j; k++) {
-                    Set<Character> nonTerminals1 = table.get(i).get(k);
-                    Set<Character> nonTerminals2 = table.get(i + k + 1).get(j - k - 1);
-                    for (char nonTerminal1 : nonTerminals1) {
-                        for (char nonTerminal2 : nonTerminals2) {
-                            String production = Character.toString(nonTerminal1) + Character.toString(nonTerminal2);
-                            List<Character> nonTerminals = inverseProductions.get(production);
-                            if (nonTerminals != null) {
-                                table.get(i).get(j).addAll(nonTerminals);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Ejecuta el algoritmo guardando, además de la tabla, de qué regla y punto
+     * de corte sale cada no terminal, para poder reconstruir los árboles de
+     * derivación.
+     *
+     * @param word La palabra a verificar.
+     * @return El bosque con todas las derivaciones de la palabra.
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public ParseForest parseForest(String word) throws CYKAlgorithmException {
+        return compile().parseForest(word);
+    }
 
-        StringBuilder tableString = new StringBuilder();
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n - i; j++) {
-                Set<Character> cell = table.get(i).get(j);
-                tableString.append(cell.toString()).append("\t");
+    /**
+     * Cuenta las derivaciones distintas de la palabra, saturando en
+     * Long.MAX_VALUE. Ver {@link CompiledGrammar#countDerivations(String)}.
+     *
+     * @param word La palabra a verificar.
+     * @return El número de derivaciones de la palabra desde el axioma.
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public long countDerivations(String word) throws CYKAlgorithmException {
+        return compile().countDerivations(word);
+    }
+
+    /**
+     * Cuenta las derivaciones distintas de la palabra módulo el número dado.
+     *
+     * @param word La palabra a verificar.
+     * @param modulus El módulo, mayor que 0.
+     * @return El número de derivaciones módulo modulus.
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática, si la gramática carece de axioma o si el
+     * módulo no es positivo.
+     */
+    public long countDerivations(String word, int modulus) throws CYKAlgorithmException {
+        return compile().countDerivations(word, modulus);
+    }
+
+    /**
+     * Cuenta exactamente las derivaciones distintas de la palabra.
+     *
+     * @param word La palabra a verificar.
+     * @return El número de derivaciones de la palabra desde el axioma.
+     * @throws CYKAlgorithmException Si la palabra no está formada sólo por
+     * terminales de la gramática o si la gramática carece de axioma.
+     */
+    public BigInteger countDerivationsExact(String word) throws CYKAlgorithmException {
+        return compile().countDerivationsExact(word);
+    }
+
+    @Override
+    /**
+     * Congela la gramática introducida hasta el momento en una instantánea
+     * inmutable que puede compartirse entre hilos. Mientras no cambie la
+     * gramática se devuelve siempre la misma instancia.
+     *
+     * @return La gramática compilada.
+     * @throws CYKAlgorithmException Si la gramática carece de axioma.
+     */
+    public CompiledGrammar compile() throws CYKAlgorithmException {
+        if(compiled == null){
+            if(startSymbol == 0){
+                throw new CYKAlgorithmException();
             }
-            tableString.append("\n");
+            compiled = CompiledGrammar.from(nonTerminals, terminals, productions, startSymbol, valiantThreshold);
         }
+        return compiled;
+    }
 
-        return tableString.toString();
+    @Override
+    /**
+     * Establece la longitud de palabra a partir de la cual isDerived calcula la
+     * tabla mediante productos de matrices booleanas (algoritmo de Valiant) en
+     * lugar del bucle CYK clásico. Ambos métodos dan el mismo resultado.
+     *
+     * @param wordLength Longitud mínima, Integer.MAX_VALUE para no usarlo nunca.
+     * @throws CYKAlgorithmException Si la longitud no es positiva.
+     */
+    public void setValiantThreshold(int wordLength) throws CYKAlgorithmException {
+        if(wordLength <= 0){
+            throw new CYKAlgorithmException();
+        }
+        compiled = null;
+        valiantThreshold = wordLength;
     }
 
     @Override
@@ -331,9 +648,14 @@ public class CYKAlgorithm implements CYKAlgorithmInterface {
      * dejando el algoritmo listo para volver a insertar una gramática nueva.
      */
     public void removeGrammar() {
+        grammarChanged();
+        startSymbol = 0;
         productions.clear();
+        inverseProductions.clear();
         nonTerminals.clear();
         terminals.clear();
+        nonTerminalMask = 0;
+        terminalMask = 0;
     }
 
     @Override
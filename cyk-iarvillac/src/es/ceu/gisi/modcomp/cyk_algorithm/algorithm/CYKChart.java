@@ -0,0 +1,100 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Tabla triangular del algoritmo CYK almacenada en un único array de enteros.
+ *
+ * Cada celda es la máscara de bits de los no terminales (según su índice en
+ * {@link CompiledGrammar}) que generan la subcadena que empieza en la posición
+ * <code>start</code> y tiene longitud <code>length</code>. Sólo se guardan las
+ * n(n+1)/2 celdas que usa el algoritmo, agrupadas por longitud (primero todas
+ * las de longitud 1, luego las de longitud 2, etc.), de modo que las celdas de
+ * una misma diagonal quedan contiguas en memoria.
+ *
+ * El array se reutiliza entre llamadas a {@link #reset(int)}: sólo se reserva
+ * memoria nueva cuando la palabra es más larga que todas las anteriores.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class CYKChart {
+
+    private int[] cells = new int[0];
+    private int[] offsets = new int[1];
+    private int n;
+    //Bytes reservados desde que se creó la tabla
+    private long allocatedBytes;
+
+    /**
+     * Prepara la tabla para una palabra de longitud n, dejando todas las
+     * celdas vacías.
+     *
+     * @param n Longitud de la palabra.
+     */
+    void reset(int n) {
+        long size = (long) n * (n + 1) / 2;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Palabra demasiado larga para la tabla CYK: " + n);
+        }
+        if (cells.length < size) {
+            cells = new int[(int) size];
+            allocatedBytes += 4 * size;
+        } else {
+            Arrays.fill(cells, 0, (int) size, 0);
+        }
+        if (offsets.length < n + 1) {
+            offsets = new int[n + 1];
+            allocatedBytes += 4L * (n + 1);
+        }
+        for (int length = 1; length <= n; length++) {
+            offsets[length] = (length - 1) * n - (length - 1) * (length - 2) / 2;
+        }
+        this.n = n;
+    }
+
+    /**
+     * @return Longitud de la palabra para la que se ha preparado la tabla.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @param start Posición inicial de la subcadena (desde 0).
+     * @param length Longitud de la subcadena (desde 1).
+     * @return Máscara de no terminales que generan la subcadena.
+     */
+    public int get(int start, int length) {
+        return cells[offsets[length] + start];
+    }
+
+    void set(int start, int length, int mask) {
+        cells[offsets[length] + start] = mask;
+    }
+
+    /**
+     * Array de celdas para los bucles internos del algoritmo. La celda
+     * (start, length) está en <code>cells()[offsets()[length] + start]</code>.
+     */
+    int[] cells() {
+        return cells;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * @return Número de bytes que ocupa actualmente el array de celdas.
+     */
+    public long capacityInBytes() {
+        return 4L * cells.length;
+    }
+
+    /**
+     * @return Bytes reservados por la tabla desde que se creó.
+     */
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+}
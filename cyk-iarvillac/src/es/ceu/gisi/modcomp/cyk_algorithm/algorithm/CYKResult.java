@@ -0,0 +1,72 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Resultado de ejecutar el algoritmo CYK sobre una palabra: indica si la
+ * palabra pertenece al lenguaje y conserva la tabla calculada.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class CYKResult {
+
+    private final CompiledGrammar grammar;
+    private final CYKChart chart;
+    private final boolean derived;
+
+    CYKResult(CompiledGrammar grammar, CYKChart chart, boolean derived) {
+        this.grammar = grammar;
+        this.chart = chart;
+        this.derived = derived;
+    }
+
+    /**
+     * @return TRUE si la palabra pertenece al lenguaje, FALSE en caso
+     * contrario.
+     */
+    public boolean isDerived() {
+        return derived;
+    }
+
+    /**
+     * @return La tabla calculada. Las máscaras usan los índices de
+     * {@link #getGrammar()}.
+     */
+    public CYKChart getChart() {
+        return chart;
+    }
+
+    /**
+     * @return La gramática con la que se calculó el resultado.
+     */
+    public CompiledGrammar getGrammar() {
+        return grammar;
+    }
+
+    /**
+     * Escribe la tabla celda a celda en <code>out</code>, con el mismo formato
+     * que algorithmStateToString pero sin construirla entera en memoria.
+     *
+     * @param out Destino, por ejemplo un Writer.
+     * @throws IOException Si falla la escritura.
+     */
+    public void writeTable(Appendable out) throws IOException {
+        grammar.writeTable(chart, out);
+    }
+
+    /**
+     * @return La tabla completa, igual que algorithmStateToString.
+     */
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder();
+        try {
+            writeTable(table);
+        } catch (IOException e) {
+            //StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return table.toString();
+    }
+}
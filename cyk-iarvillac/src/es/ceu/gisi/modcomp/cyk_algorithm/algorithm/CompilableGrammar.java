@@ -0,0 +1,24 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+
+/**
+ * Gramática que se puede congelar en una {@link CompiledGrammar}. Está
+ * separada de CYKAlgorithmInterface para que esa interfaz no dependa de las
+ * clases que la implementan.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public interface CompilableGrammar {
+
+    /**
+     * Congela la gramática introducida hasta el momento en una instantánea
+     * inmutable, con los símbolos numerados de forma densa, cuyo reconocedor
+     * puede usarse concurrentemente desde varios hilos sin sincronización.
+     * Los cambios posteriores en la gramática no afectan a la instantánea.
+     *
+     * @return La gramática compilada.
+     * @throws CYKAlgorithmException Si la gramática carece de axioma.
+     */
+    public CompiledGrammar compile() throws CYKAlgorithmException;
+}
@@ -0,0 +1,1098 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Instantánea inmutable de una gramática en FNC preparada para ejecutar el
+ * algoritmo CYK.
+ *
+ * Los no terminales se numeran de forma densa (0, 1, 2...) en el orden en que
+ * se añadieron a la gramática, y los conjuntos de no terminales se representan
+ * como máscaras de bits sobre esos índices. Las producciones se guardan como
+ * tablas de reglas inversas: <code>lexicalRules[t]</code> es la máscara de los
+ * X tales que X::=t y <code>binaryRules[B][C]</code> la de los X tales que
+ * X::=BC.
+ *
+ * Ningún campo se modifica tras la construcción y cada hilo usa su propia
+ * tabla CYK, así que una misma instancia puede usarse concurrentemente desde
+ * cualquier número de hilos sin sincronización.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class CompiledGrammar {
+
+    //Tabla CYK de cada hilo, reutilizada entre llamadas
+    private static final ThreadLocal<CYKChart> CHARTS = ThreadLocal.withInitial(CYKChart::new);
+    //Las palabras más largas usan una tabla propia en lugar de la del hilo (unos 8 MB)
+    static final int CACHED_CHART_MAX_LENGTH = 2048;
+    //Por debajo de esta longitud isDerivedParallel no reparte el trabajo
+    static final int PARALLEL_MIN_LENGTH = 256;
+    //Número aproximado de divisiones (celdas x puntos de corte) por subtarea
+    private static final int PARALLEL_GRAIN = 1 << 14;
+
+    /**
+     * Primeros bytes de una gramática guardada con
+     * {@link #writeTo(OutputStream)}: "CYKG" en ASCII.
+     */
+    public static final int MAGIC = 0x43594B47;
+
+    /**
+     * Versión del formato binario que escribe {@link #writeTo(OutputStream)}.
+     * Cambia cada vez que el formato deja de ser compatible.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    //Bytes de la cabecera del formato binario
+    private static final int HEADER_SIZE = 13;
+
+    private final char[] nonTerminalSymbols;
+    private final char[] terminalSymbols;
+    //terminalIds['x' - 'a'] es el índice del terminal 'x', o -1 si no existe
+    private final int[] terminalIds;
+    private final int[] lexicalRules;
+    private final int[][] binaryRules;
+    //rulesByHead[X] = reglas X::=BC empaquetadas como (B << 5) | C, para GoalDirectedRecognizer
+    private final int[][] rulesByHead;
+    //leftCorners[X] = máscara de los Y tales que X deriva YW para alguna W (incluye a X); rightCorners igual por el final
+    private final int[] leftCorners;
+    private final int[] rightCorners;
+    //Reconocedor con la tabla por columnas, ver isDerivedBitParallel
+    private final BitParallelRecognizer bitParallel;
+    private final int startSymbol;
+    //Longitud a partir de la cual isDerived usa ValiantRecognizer
+    private final int valiantThreshold;
+    //Índices de los no terminales ordenados alfabéticamente, para escribir celdas
+    private final int[] alphabeticalOrder;
+
+    private CompiledGrammar(char[] nonTerminalSymbols, char[] terminalSymbols, int[] terminalIds,
+            int[] lexicalRules, int[][] binaryRules, int startSymbol, int valiantThreshold) {
+        this.nonTerminalSymbols = nonTerminalSymbols;
+        this.terminalSymbols = terminalSymbols;
+        this.terminalIds = terminalIds;
+        this.lexicalRules = lexicalRules;
+        this.binaryRules = binaryRules;
+        this.startSymbol = startSymbol;
+        this.valiantThreshold = valiantThreshold;
+        this.rulesByHead = new int[nonTerminalSymbols.length][];
+        for (int head = 0; head < rulesByHead.length; head++) {
+            int count = 0;
+            int[] rules = new int[nonTerminalSymbols.length * nonTerminalSymbols.length];
+            for (int b = 0; b < nonTerminalSymbols.length; b++) {
+                for (int c = 0; c < nonTerminalSymbols.length; c++) {
+                    if ((binaryRules[b][c] & (1 << head)) != 0) {
+                        rules[count++] = (b << 5) | c;
+                    }
+                }
+            }
+            rulesByHead[head] = Arrays.copyOf(rules, count);
+        }
+        this.leftCorners = new int[nonTerminalSymbols.length];
+        this.rightCorners = new int[nonTerminalSymbols.length];
+        for (int x = 0; x < leftCorners.length; x++) {
+            leftCorners[x] = rightCorners[x] = 1 << x;
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int x = 0; x < leftCorners.length; x++) {
+                int left = leftCorners[x];
+                int right = rightCorners[x];
+                for (int rule : rulesByHead[x]) {
+                    left |= leftCorners[rule >>> 5];
+                    right |= rightCorners[rule & 31];
+                }
+                changed |= left != leftCorners[x] || right != rightCorners[x];
+                leftCorners[x] = left;
+                rightCorners[x] = right;
+            }
+        }
+        this.bitParallel = new BitParallelRecognizer(binaryRules);
+        this.alphabeticalOrder = new int[nonTerminalSymbols.length];
+        int next = 0;
+        for (char symbol = 'A'; symbol <= 'Z'; symbol++) {
+            for (int id = 0; id < nonTerminalSymbols.length; id++) {
+                if (nonTerminalSymbols[id] == symbol) {
+                    alphabeticalOrder[next++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Construye la instantánea a partir de la representación de CYKAlgorithm.
+     * Las producciones ya deben estar validadas.
+     */
+    static CompiledGrammar from(List<Character> nonTerminals, List<Character> terminals,
+            Map<Character, List<String>> productions, char startSymbol, int valiantThreshold) {
+        int[] nonTerminalIds = new int[26];
+        char[] nonTerminalSymbols = new char[nonTerminals.size()];
+        for (int i = 0; i < nonTerminalSymbols.length; i++) {
+            nonTerminalSymbols[i] = nonTerminals.get(i);
+            nonTerminalIds[nonTerminalSymbols[i] - 'A'] = i;
+        }
+
+        int[] terminalIds = new int[26];
+        Arrays.fill(terminalIds, -1);
+        char[] terminalSymbols = new char[terminals.size()];
+        for (int i = 0; i < terminalSymbols.length; i++) {
+            terminalSymbols[i] = terminals.get(i);
+            terminalIds[terminalSymbols[i] - 'a'] = i;
+        }
+
+        int[] lexicalRules = new int[terminalSymbols.length];
+        int[][] binaryRules = new int[nonTerminalSymbols.length][nonTerminalSymbols.length];
+        for (Map.Entry<Character, List<String>> entry : productions.entrySet()) {
+            int head = 1 << nonTerminalIds[entry.getKey() - 'A'];
+            for (String production : entry.getValue()) {
+                if (production.length() == 1) {
+                    lexicalRules[terminalIds[production.charAt(0) - 'a']] |= head;
+                } else {
+                    binaryRules[nonTerminalIds[production.charAt(0) - 'A']][nonTerminalIds[production.charAt(1) - 'A']] |= head;
+                }
+            }
+        }
+
+        return new CompiledGrammar(nonTerminalSymbols, terminalSymbols, terminalIds,
+                lexicalRules, binaryRules, nonTerminalIds[startSymbol - 'A'], valiantThreshold);
+    }
+
+    /**
+     * Método que indica si una palabra pertenece al lenguaje generado por la
+     * gramática. Puede llamarse concurrentemente desde varios hilos. Las
+     * palabras de longitud igual o mayor que el umbral con el que se compiló
+     * la gramática se reconocen con {@link #isDerivedValiant(String)}.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerived(String word) throws CYKAlgorithmException {
+        return isDerived(word, 0, word.length());
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} para cualquier secuencia de
+     * caracteres, por ejemplo un StringBuilder o un CharBuffer, sin copiarla.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerived(CharSequence word) throws CYKAlgorithmException {
+        return isDerived(word, 0, word.length());
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} para el trozo de la secuencia de
+     * caracteres que empieza en <code>offset</code> y tiene longitud
+     * <code>length</code>, sin copiarlo. Permite reconocer registros
+     * directamente desde un búfer de entrada.
+     *
+     * @param word Secuencia que contiene la palabra.
+     * @param offset Posición del primer símbolo de la palabra en la secuencia.
+     * @param length Longitud de la palabra.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     * @throws IndexOutOfBoundsException Si el trozo se sale de la secuencia.
+     */
+    public boolean isDerived(CharSequence word, int offset, int length) throws CYKAlgorithmException {
+        Objects.checkFromIndexSize(offset, length, word.length());
+        if (length == 0) {
+            //En FNC no hay producciones vacías, la palabra vacía nunca se deriva
+            return false;
+        }
+        CYKChart chart = chart(length);
+        chart.reset(length);
+        int[] cells = chart.cells();
+        for (int i = 0; i < length; i++) {
+            cells[i] = lexicalRules[terminalId(word.charAt(offset + i))];
+        }
+        return recognize(chart);
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} con la palabra dada como índices
+     * de terminales (ver {@link #terminalSymbol(int)}), por ejemplo ya
+     * traducidos por el código que la lee.
+     *
+     * @param tokens Índices de los terminales de la palabra.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si algún índice no corresponde a un
+     * terminal de la gramática.
+     */
+    public boolean isDerived(int[] tokens) throws CYKAlgorithmException {
+        return isDerived(tokens, 0, tokens.length);
+    }
+
+    /**
+     * Igual que {@link #isDerived(int[])} para los <code>length</code>
+     * índices que empiezan en la posición <code>offset</code> del array.
+     *
+     * @throws IndexOutOfBoundsException Si el trozo se sale del array.
+     */
+    public boolean isDerived(int[] tokens, int offset, int length) throws CYKAlgorithmException {
+        Objects.checkFromIndexSize(offset, length, tokens.length);
+        if (length == 0) {
+            return false;
+        }
+        CYKChart chart = chart(length);
+        chart.reset(length);
+        int[] cells = chart.cells();
+        for (int i = 0; i < length; i++) {
+            int terminal = tokens[offset + i];
+            if (terminal < 0 || terminal >= lexicalRules.length) {
+                throw new CYKAlgorithmException();
+            }
+            cells[i] = lexicalRules[terminal];
+        }
+        return recognize(chart);
+    }
+
+    /**
+     * Tabla para una palabra de longitud n: la del hilo actual o, si la
+     * palabra es más larga que {@value #CACHED_CHART_MAX_LENGTH}, una nueva
+     * que se libera al terminar. Así una sola palabra muy larga no deja
+     * reservada para siempre una tabla enorme en cada hilo que la procesa.
+     */
+    private static CYKChart chart(int n) {
+        return n <= CACHED_CHART_MAX_LENGTH ? CHARTS.get() : new CYKChart();
+    }
+
+    /**
+     * Completa la tabla, que ya tiene rellenas las celdas de longitud 1, con
+     * el bucle CYK o con el algoritmo de Valiant según la longitud.
+     *
+     * @return TRUE si el axioma genera la palabra completa.
+     */
+    private boolean recognize(CYKChart chart) {
+        int n = chart.size();
+        if (n >= valiantThreshold) {
+            new ValiantRecognizer(binaryRules, chart).fill();
+        } else {
+            int[] cells = chart.cells();
+            int[] offsets = chart.offsets();
+            for (int length = 2; length <= n; length++) {
+                fillDiagonal(cells, offsets, length, 0, n - length + 1);
+            }
+        }
+        return (chart.get(0, n) & (1 << startSymbol)) != 0;
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} pero registrando en
+     * <code>metrics</code> el trabajo realizado. Con el algoritmo de Valiant
+     * no se cuentan puntos de corte ni búsquedas de reglas.
+     */
+    boolean isDerived(String word, RecognitionMetrics metrics) throws CYKAlgorithmException {
+        long startTime = System.nanoTime();
+        int n = word.length();
+        if (n == 0) {
+            metrics.record(0, 0, 0, 0, 0, 0, System.nanoTime() - startTime);
+            return false;
+        }
+        CYKChart chart = chart(n);
+        long allocated = chart.allocatedBytes();
+        long splitPoints = 0;
+        long lookups = 0;
+        chart.reset(n);
+        int[] cells = chart.cells();
+        int[] offsets = chart.offsets();
+        for (int i = 0; i < n; i++) {
+            cells[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+        if (n >= valiantThreshold) {
+            new ValiantRecognizer(binaryRules, chart).fill();
+            //ValiantRecognizer reserva además una tabla auxiliar del mismo tamaño
+            allocated -= 4L * n * (n + 1) / 2;
+        } else {
+            for (int length = 2; length <= n; length++) {
+                lookups += fillDiagonalCounting(cells, offsets, n, length);
+                splitPoints += (long) (length - 1) * (n - length + 1);
+            }
+        }
+        boolean derived = (chart.get(0, n) & (1 << startSymbol)) != 0;
+        long elapsed = System.nanoTime() - startTime;
+
+        long cellCount = (long) n * (n + 1) / 2;
+        long nonEmpty = 0;
+        for (int i = 0; i < cellCount; i++) {
+            if (cells[i] != 0) {
+                nonEmpty++;
+            }
+        }
+        metrics.record(n, cellCount, splitPoints, lookups, nonEmpty,
+                chart.allocatedBytes() - allocated, elapsed);
+        return derived;
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} pero calculando la tabla mediante
+     * productos de matrices booleanas (algoritmo de Valiant). Da siempre el
+     * mismo resultado que el bucle CYK clásico y compensa en palabras largas.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerivedValiant(String word) throws CYKAlgorithmException {
+        int n = word.length();
+        if (n == 0) {
+            return false;
+        }
+        CYKChart chart = chart(n);
+        chart.reset(n);
+        int[] cells = chart.cells();
+        for (int i = 0; i < n; i++) {
+            cells[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+        new ValiantRecognizer(binaryRules, chart).fill();
+        return (chart.get(0, n) & (1 << startSymbol)) != 0;
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} pero de forma descendente: parte del
+     * axioma sobre la palabra completa y sólo evalúa las subcadenas y no
+     * terminales a los que se llega desde él, parando en el primer punto de
+     * corte que tiene éxito y descartando sin buscarlos los subobjetivos cuyo
+     * primer o último símbolo no puede generar el no terminal.
+     *
+     * Sólo compensa cuando casi todos los subobjetivos se descartan así o el
+     * primer punto de corte tiene éxito, como en gramáticas de listas o casi
+     * deterministas, donde reconoce en tiempo casi lineal. Con gramáticas muy
+     * ambiguas, en las que se llega a casi todas las celdas, es varias veces
+     * más lento que {@link #isDerived(String)}. Ver el benchmark
+     * GoalDirectedBenchmark de cyk-bench.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerivedGoalDirected(String word) throws CYKAlgorithmException {
+        int[] lexical = new int[word.length()];
+        for (int i = 0; i < lexical.length; i++) {
+            lexical[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+        return new GoalDirectedRecognizer(rulesByHead, leftCorners, rightCorners, lexical).isDerived(startSymbol);
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} pero guardando la tabla por
+     * columnas: un vector de bits por no terminal y longitud de subcadena,
+     * con un bit por posición de inicio. Cada regla X::=BC y punto de corte
+     * se aplica a 64 posiciones de inicio a la vez con un desplazamiento y un
+     * AND, lo que compensa en palabras largas.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerivedBitParallel(String word) throws CYKAlgorithmException {
+        int[] lexical = new int[word.length()];
+        for (int i = 0; i < lexical.length; i++) {
+            lexical[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+        return (bitParallel.recognize(lexical) & (1 << startSymbol)) != 0;
+    }
+
+    /**
+     * Igual que {@link #isDerived(String)} pero repartiendo entre los hilos
+     * del pool común las celdas de cada diagonal de la tabla. Pensado para
+     * palabras muy largas: las de menos de {@value #PARALLEL_MIN_LENGTH}
+     * símbolos se procesan en el hilo actual.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public boolean isDerivedParallel(String word) throws CYKAlgorithmException {
+        int n = word.length();
+        if (n < PARALLEL_MIN_LENGTH) {
+            return isDerived(word);
+        }
+        CYKChart chart = chart(n);
+        fillParallel(chart, word, ForkJoinPool.commonPool());
+        return (chart.get(0, n) & (1 << startSymbol)) != 0;
+    }
+
+    /**
+     * Crea un reconocedor incremental sobre esta gramática, al que se le van
+     * añadiendo los símbolos de la palabra de uno en uno.
+     *
+     * @return Un reconocedor vacío.
+     */
+    public IncrementalRecognizer newIncrementalRecognizer() {
+        return new IncrementalRecognizer(this);
+    }
+
+    /**
+     * Comprueba una lista de palabras repartiendo el trabajo entre los hilos
+     * del pool común de fork/join.
+     *
+     * @param words Las palabras a verificar.
+     * @return Un BitSet cuyo bit i está activo si y sólo si la palabra i de la
+     * lista pertenece al lenguaje.
+     * @throws CYKAlgorithmException Si alguna palabra contiene símbolos que no
+     * son terminales de la gramática.
+     */
+    public BitSet isDerivedAll(List<String> words) throws CYKAlgorithmException {
+        return isDerivedAll(words, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Igual que {@link #isDerivedAll(List)} pero recibiendo las palabras como
+     * un Stream, que se consume entero antes de empezar.
+     */
+    public BitSet isDerivedAll(Stream<String> words) throws CYKAlgorithmException {
+        return isDerivedAll(words.collect(Collectors.toList()));
+    }
+
+    /**
+     * Igual que {@link #isDerivedAll(List)} pero usando el pool indicado.
+     */
+    public BitSet isDerivedAll(List<String> words, ForkJoinPool pool) throws CYKAlgorithmException {
+        long[] results = new long[(words.size() + 63) / 64];
+        try {
+            pool.invoke(new BatchTask(this, words, results, 0, words.size()));
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof CYKAlgorithmException) {
+                    throw (CYKAlgorithmException) cause;
+                }
+            }
+            throw e;
+        }
+        return BitSet.valueOf(results);
+    }
+
+    /**
+     * Comprueba una lista de palabras reutilizando el trabajo hecho para los
+     * prefijos comunes. Las palabras se recorren en orden lexicográfico con un
+     * único {@link IncrementalRecognizer}: de cada palabra sólo se calculan
+     * las columnas de la tabla que siguen al prefijo que comparte con la
+     * anterior. Compensa cuando muchas palabras comparten prefijos largos.
+     *
+     * @param words Las palabras a verificar.
+     * @return Un BitSet cuyo bit i está activo si y sólo si la palabra i de la
+     * lista pertenece al lenguaje.
+     * @throws CYKAlgorithmException Si alguna palabra contiene símbolos que no
+     * son terminales de la gramática.
+     */
+    public BitSet isDerivedAllSharingPrefixes(List<String> words) throws CYKAlgorithmException {
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> words.get(first).compareTo(words.get(second)));
+
+        BitSet results = new BitSet(words.size());
+        IncrementalRecognizer recognizer = newIncrementalRecognizer();
+        String previous = "";
+        for (int index : order) {
+            String word = words.get(index);
+            int common = 0;
+            int limit = Math.min(recognizer.length(), word.length());
+            while (common < limit && word.charAt(common) == previous.charAt(common)) {
+                common++;
+            }
+            recognizer.truncate(common);
+            previous = word;
+            for (int i = common; i < word.length(); i++) {
+                recognizer.append(word.charAt(i));
+            }
+            if (recognizer.isDerived()) {
+                results.set(index);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Devuelve la tabla completa calculada por el algoritmo para la palabra,
+     * con una fila por posición inicial y una columna por longitud.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return La tabla, con las celdas separadas por tabuladores.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public String algorithmStateToString(String word) throws CYKAlgorithmException {
+        CYKChart chart = chart(word.length());
+        fill(chart, word);
+
+        StringBuilder tableString = new StringBuilder();
+        try {
+            writeTable(chart, tableString);
+        } catch (IOException e) {
+            //StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return tableString.toString();
+    }
+
+    /**
+     * Calcula la tabla completa para la palabra y la devuelve junto con el
+     * resultado, de modo que se puede consultar si la palabra pertenece al
+     * lenguaje y mostrar la tabla sin repetir el algoritmo.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return El resultado, con una tabla propia que no se reutiliza.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public CYKResult parse(String word) throws CYKAlgorithmException {
+        CYKChart chart = new CYKChart();
+        fill(chart, word);
+        int n = word.length();
+        boolean derived = n > 0 && (chart.get(0, n) & (1 << startSymbol)) != 0;
+        return new CYKResult(this, chart, derived);
+    }
+
+    /**
+     * Calcula la tabla para la palabra y construye el bosque con todas sus
+     * derivaciones, del que se pueden extraer árboles bajo demanda.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return El bosque de derivaciones, vacío si la palabra no pertenece al
+     * lenguaje.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public ParseForest parseForest(String word) throws CYKAlgorithmException {
+        CYKChart chart = chart(word.length());
+        fill(chart, word);
+        return ParseForest.build(this, chart, word);
+    }
+
+    /**
+     * Cuenta las derivaciones distintas de la palabra desde el axioma sin
+     * enumerar los árboles. Una cuenta mayor que 1 indica que la palabra es
+     * ambigua para la gramática.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return El número de derivaciones, o Long.MAX_VALUE si no cabe en un
+     * long.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public long countDerivations(String word) throws CYKAlgorithmException {
+        CYKChart chart = chart(word.length());
+        fill(chart, word);
+        return new DerivationCounter(this, chart).count(0);
+    }
+
+    /**
+     * Cuenta las derivaciones distintas de la palabra desde el axioma módulo
+     * el número dado.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @param modulus El módulo, mayor que 0.
+     * @return El número de derivaciones módulo modulus.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática o el módulo no es positivo.
+     */
+    public long countDerivations(String word, int modulus) throws CYKAlgorithmException {
+        if (modulus <= 0) {
+            throw new CYKAlgorithmException();
+        }
+        CYKChart chart = chart(word.length());
+        fill(chart, word);
+        return new DerivationCounter(this, chart).count(modulus);
+    }
+
+    /**
+     * Cuenta exactamente las derivaciones distintas de la palabra desde el
+     * axioma, por grandes que sean.
+     *
+     * @param word La palabra a verificar, formada sólo por terminales.
+     * @return El número de derivaciones.
+     * @throws CYKAlgorithmException Si la palabra contiene símbolos que no son
+     * terminales de la gramática.
+     */
+    public BigInteger countDerivationsExact(String word) throws CYKAlgorithmException {
+        CYKChart chart = chart(word.length());
+        fill(chart, word);
+        return new DerivationCounter(this, chart).countExact();
+    }
+
+    /**
+     * Escribe la tabla celda a celda, con una fila por posición inicial y una
+     * columna por longitud, en el formato de algorithmStateToString.
+     */
+    void writeTable(CYKChart chart, Appendable out) throws IOException {
+        int n = chart.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n - i; j++) {
+                appendMask(out, chart.get(i, j + 1));
+                out.append('\t');
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Rellena la tabla con todas las celdas del algoritmo CYK para la palabra.
+     *
+     * @throws CYKAlgorithmException Si la palabra contiene algún símbolo que no
+     * es un terminal de la gramática.
+     */
+    void fill(CYKChart chart, String word) throws CYKAlgorithmException {
+        int n = word.length();
+        chart.reset(n);
+        int[] cells = chart.cells();
+        int[] offsets = chart.offsets();
+
+        for (int i = 0; i < n; i++) {
+            cells[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+
+        for (int length = 2; length <= n; length++) {
+            fillDiagonal(cells, offsets, length, 0, n - length + 1);
+        }
+    }
+
+    /**
+     * Rellena la tabla como {@link #fill(CYKChart, String)}, pero calculando
+     * en paralelo las celdas de cada diagonal (todas las subcadenas de una
+     * misma longitud), que sólo dependen de diagonales anteriores.
+     */
+    void fillParallel(CYKChart chart, String word, ForkJoinPool pool) throws CYKAlgorithmException {
+        int n = word.length();
+        chart.reset(n);
+        int[] cells = chart.cells();
+        int[] offsets = chart.offsets();
+
+        for (int i = 0; i < n; i++) {
+            cells[i] = lexicalRules[terminalId(word.charAt(i))];
+        }
+
+        for (int length = 2; length <= n; length++) {
+            int count = n - length + 1;
+            if ((long) count * (length - 1) < 2 * PARALLEL_GRAIN) {
+                fillDiagonal(cells, offsets, length, 0, count);
+            } else {
+                pool.invoke(new DiagonalTask(this, cells, offsets, length, 0, count));
+            }
+        }
+    }
+
+    /**
+     * Calcula las celdas de longitud <code>length</code> cuyas posiciones
+     * iniciales están en [from, to).
+     */
+    private void fillDiagonal(int[] cells, int[] offsets, int length, int from, int to) {
+        int target = offsets[length];
+        for (int i = from; i < to; i++) {
+            int cell = 0;
+            for (int k = 1; k < length; k++) {
+                int nonTerminals1 = cells[offsets[k] + i];
+                int nonTerminals2 = cells[offsets[length - k] + i + k];
+                if (nonTerminals1 == 0 || nonTerminals2 == 0) {
+                    continue;
+                }
+                while (nonTerminals1 != 0) {
+                    int[] rulesForFirst = binaryRules[Integer.numberOfTrailingZeros(nonTerminals1)];
+                    nonTerminals1 &= nonTerminals1 - 1;
+                    int second = nonTerminals2;
+                    while (second != 0) {
+                        cell |= rulesForFirst[Integer.numberOfTrailingZeros(second)];
+                        second &= second - 1;
+                    }
+                }
+            }
+            cells[target + i] = cell;
+        }
+    }
+
+    /**
+     * Igual que {@link #fillDiagonal(int[], int[], int, int, int)} para toda
+     * la diagonal, pero contando los pares (B, C) buscados en la tabla de
+     * reglas. Se mantiene aparte para no penalizar el caso sin métricas.
+     *
+     * @return Número de búsquedas en la tabla de reglas.
+     */
+    private long fillDiagonalCounting(int[] cells, int[] offsets, int n, int length) {
+        int target = offsets[length];
+        long lookups = 0;
+        for (int i = 0; i + length <= n; i++) {
+            int cell = 0;
+            for (int k = 1; k < length; k++) {
+                int nonTerminals1 = cells[offsets[k] + i];
+                int nonTerminals2 = cells[offsets[length - k] + i + k];
+                if (nonTerminals1 == 0 || nonTerminals2 == 0) {
+                    continue;
+                }
+                lookups += Integer.bitCount(nonTerminals1) * Integer.bitCount(nonTerminals2);
+                cell |= combine(nonTerminals1, nonTerminals2);
+            }
+            cells[target + i] = cell;
+        }
+        return lookups;
+    }
+
+    /**
+     * @return Máscara de los no terminales X tales que X::=BC con B en
+     * <code>first</code> y C en <code>second</code>.
+     */
+    int combine(int first, int second) {
+        if (first == 0 || second == 0) {
+            return 0;
+        }
+        int cell = 0;
+        while (first != 0) {
+            int[] rulesForFirst = binaryRules[Integer.numberOfTrailingZeros(first)];
+            first &= first - 1;
+            int rest = second;
+            while (rest != 0) {
+                cell |= rulesForFirst[Integer.numberOfTrailingZeros(rest)];
+                rest &= rest - 1;
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * @return Máscara de los no terminales X tales que X::=BC.
+     */
+    int binaryRule(int left, int right) {
+        return binaryRules[left][right];
+    }
+
+    /**
+     * @return Máscara de los no terminales X tales que X::=t, siendo t el
+     * terminal de índice denso <code>terminal</code>.
+     */
+    int lexicalRule(int terminal) {
+        return lexicalRules[terminal];
+    }
+
+    /**
+     * @return Índice denso del terminal.
+     * @throws CYKAlgorithmException Si el símbolo no es un terminal de la
+     * gramática.
+     */
+    int terminalId(char terminal) throws CYKAlgorithmException {
+        int index = terminal - 'a';
+        if (index < 0 || index >= 26 || terminalIds[index] < 0) {
+            throw new CYKAlgorithmException();
+        }
+        return terminalIds[index];
+    }
+
+    /**
+     * Escribe la máscara como un conjunto de no terminales, por ejemplo
+     * "[A, C]", en orden alfabético.
+     */
+    void appendMask(Appendable out, int mask) throws IOException {
+        out.append('[');
+        boolean first = true;
+        for (int id : alphabeticalOrder) {
+            if ((mask & (1 << id)) != 0) {
+                if (!first) {
+                    out.append(", ");
+                }
+                out.append(nonTerminalSymbols[id]);
+                first = false;
+            }
+        }
+        out.append(']');
+    }
+
+    /**
+     * @return Número de no terminales de la gramática.
+     */
+    public int nonTerminalCount() {
+        return nonTerminalSymbols.length;
+    }
+
+    /**
+     * @return Número de terminales de la gramática.
+     */
+    public int terminalCount() {
+        return terminalSymbols.length;
+    }
+
+    /**
+     * @param id Índice denso de un no terminal.
+     * @return El símbolo del no terminal, por ejemplo 'S'.
+     */
+    public char nonTerminalSymbol(int id) {
+        return nonTerminalSymbols[id];
+    }
+
+    /**
+     * @param id Índice denso de un terminal, el que se usa en
+     * {@link #isDerived(int[])}.
+     * @return El símbolo del terminal, por ejemplo 'a'.
+     */
+    public char terminalSymbol(int id) {
+        return terminalSymbols[id];
+    }
+
+    /**
+     * @return Índice denso del axioma.
+     */
+    public int startSymbol() {
+        return startSymbol;
+    }
+
+    /**
+     * Escribe la gramática en formato binario, que se puede volver a cargar
+     * con {@link #read(ByteBuffer)} o {@link #load(Path)} sin repetir las
+     * llamadas a addProduction ni sus validaciones. Todos los enteros van en
+     * orden big-endian:
+     *
+     * <pre>
+     * int     {@link #MAGIC}
+     * short   {@link #FORMAT_VERSION}
+     * byte    número de no terminales (N)
+     * byte    número de terminales (T)
+     * byte    índice del axioma
+     * int     umbral de Valiant
+     * byte[N] símbolos de los no terminales, por índice
+     * byte[T] símbolos de los terminales, por índice
+     * int[T]  lexicalRules
+     * int[N*N] binaryRules, por filas
+     * </pre>
+     *
+     * @param out Destino, que no se cierra.
+     * @throws IOException Si falla la escritura.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int n = nonTerminalSymbols.length;
+        int t = terminalSymbols.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + n + t + 4 * t + 4 * n * n);
+        buffer.putInt(MAGIC).putShort((short) FORMAT_VERSION);
+        buffer.put((byte) n).put((byte) t).put((byte) startSymbol).putInt(valiantThreshold);
+        for (char symbol : nonTerminalSymbols) {
+            buffer.put((byte) symbol);
+        }
+        for (char symbol : terminalSymbols) {
+            buffer.put((byte) symbol);
+        }
+        buffer.asIntBuffer().put(lexicalRules);
+        buffer.position(buffer.position() + 4 * t);
+        for (int[] row : binaryRules) {
+            buffer.asIntBuffer().put(row);
+            buffer.position(buffer.position() + 4 * n);
+        }
+        out.write(buffer.array());
+    }
+
+    /**
+     * Guarda la gramática en un fichero con {@link #writeTo(OutputStream)}.
+     *
+     * @param file Fichero de destino, que se sobrescribe.
+     * @throws IOException Si falla la escritura.
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            writeTo(out);
+        }
+    }
+
+    /**
+     * Lee una gramática escrita con {@link #writeTo(OutputStream)} a partir
+     * de la posición actual del búfer, que queda justo detrás. Se comprueban
+     * la cabecera, que los símbolos sean válidos y no estén repetidos, y que
+     * las reglas sólo usen no terminales de la gramática.
+     *
+     * @param buffer Búfer con la gramática, por ejemplo un fichero proyectado
+     * en memoria.
+     * @return La gramática compilada.
+     * @throws IOException Si el búfer no contiene una gramática en este
+     * formato o en esta versión.
+     */
+    public static CompiledGrammar read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("No es una gramática compilada");
+            }
+            int version = in.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Versión de gramática compilada no soportada: " + version);
+            }
+            int n = in.get();
+            int t = in.get();
+            int start = in.get();
+            int valiantThreshold = in.getInt();
+            if (n < 1 || n > 26 || t < 0 || t > 26 || start < 0 || start >= n || valiantThreshold <= 0) {
+                throw new IOException("Cabecera de gramática compilada no válida");
+            }
+
+            int seen = 0;
+            char[] nonTerminalSymbols = new char[n];
+            for (int i = 0; i < n; i++) {
+                nonTerminalSymbols[i] = (char) in.get();
+                if (nonTerminalSymbols[i] < 'A' || nonTerminalSymbols[i] > 'Z'
+                        || (seen & (1 << (nonTerminalSymbols[i] - 'A'))) != 0) {
+                    throw new IOException("Símbolo no terminal no válido en la gramática compilada");
+                }
+                seen |= 1 << (nonTerminalSymbols[i] - 'A');
+            }
+            int[] terminalIds = new int[26];
+            Arrays.fill(terminalIds, -1);
+            char[] terminalSymbols = new char[t];
+            for (int i = 0; i < t; i++) {
+                terminalSymbols[i] = (char) in.get();
+                if (terminalSymbols[i] < 'a' || terminalSymbols[i] > 'z' || terminalIds[terminalSymbols[i] - 'a'] >= 0) {
+                    throw new IOException("Símbolo terminal no válido en la gramática compilada");
+                }
+                terminalIds[terminalSymbols[i] - 'a'] = i;
+            }
+
+            //Cada máscara de reglas sólo puede tener bits de los n no terminales
+            int unknown = ~((1 << n) - 1);
+            int[] lexicalRules = new int[t];
+            in.asIntBuffer().get(lexicalRules);
+            in.position(in.position() + 4 * t);
+            for (int heads : lexicalRules) {
+                if ((heads & unknown) != 0) {
+                    throw new IOException("Regla no válida en la gramática compilada");
+                }
+            }
+            int[][] binaryRules = new int[n][n];
+            for (int[] row : binaryRules) {
+                in.asIntBuffer().get(row);
+                in.position(in.position() + 4 * n);
+                for (int heads : row) {
+                    if ((heads & unknown) != 0) {
+                        throw new IOException("Regla no válida en la gramática compilada");
+                    }
+                }
+            }
+            buffer.position(buffer.position() + in.position());
+            return new CompiledGrammar(nonTerminalSymbols, terminalSymbols, terminalIds,
+                    lexicalRules, binaryRules, start, valiantThreshold);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Gramática compilada incompleta", e);
+        }
+    }
+
+    /**
+     * Carga una gramática guardada con {@link #save(Path)}, proyectando el
+     * fichero en memoria.
+     *
+     * @param file Fichero con la gramática.
+     * @return La gramática compilada.
+     * @throws IOException Si falla la lectura o el fichero no contiene una
+     * gramática en este formato.
+     */
+    public static CompiledGrammar load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Tarea que divide el rango de palabras en mitades alineadas a 64, de modo
+     * que cada hoja escribe en palabras distintas del array de resultados y no
+     * hace falta sincronizar.
+     */
+    private static final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int LEAF_SIZE = 64;
+
+        private final CompiledGrammar grammar;
+        private final List<String> words;
+        private final long[] results;
+        private final int from;
+        private final int to;
+
+        BatchTask(CompiledGrammar grammar, List<String> words, long[] results, int from, int to) {
+            this.grammar = grammar;
+            this.words = words;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + (to - from) / 2) & ~(LEAF_SIZE - 1);
+                if (middle <= from) {
+                    middle = from + LEAF_SIZE;
+                }
+                invokeAll(new BatchTask(grammar, words, results, from, middle),
+                        new BatchTask(grammar, words, results, middle, to));
+                return;
+            }
+            try {
+                for (int i = from; i < to; i++) {
+                    if (grammar.isDerived(words.get(i))) {
+                        results[i >>> 6] |= 1L << i;
+                    }
+                }
+            } catch (CYKAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Tarea que reparte las celdas de una diagonal. Cada subtarea escribe en
+     * un rango distinto de celdas y sólo lee diagonales ya terminadas.
+     */
+    private static final class DiagonalTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledGrammar grammar;
+        private final int[] cells;
+        private final int[] offsets;
+        private final int length;
+        private final int from;
+        private final int to;
+
+        DiagonalTask(CompiledGrammar grammar, int[] cells, int[] offsets, int length, int from, int to) {
+            this.grammar = grammar;
+            this.cells = cells;
+            this.offsets = offsets;
+            this.length = length;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) (to - from) * (length - 1) > PARALLEL_GRAIN && to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DiagonalTask(grammar, cells, offsets, length, from, middle),
+                        new DiagonalTask(grammar, cells, offsets, length, middle, to));
+            } else {
+                grammar.fillDiagonal(cells, offsets, length, from, to);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché LRU de resultados de isDerived, limitada en número de entradas y en
+ * memoria aproximada.
+ *
+ * Cada resultado se guarda junto a la versión de la gramática con la que se
+ * calculó: en cuanto se consulta con una versión distinta la caché se vacía,
+ * de modo que nunca se devuelven resultados de una gramática anterior.
+ *
+ * Los métodos están sincronizados, así que la caché puede consultarse desde
+ * varios hilos.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class DerivationCache {
+
+    //Estimación de lo que ocupa cada entrada además de los caracteres de la
+    //palabra: cabeceras del String y de su array, nodo del mapa y Boolean
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Boolean> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries Número máximo de palabras guardadas.
+     * @param maxBytes Memoria máxima aproximada que pueden ocupar.
+     */
+    DerivationCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("La caché necesita tamaño positivo");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return El resultado guardado para la palabra, o null si no está o se
+     * calculó con otra versión de la gramática.
+     */
+    synchronized Boolean get(long grammarVersion, String word) {
+        if (grammarVersion != version) {
+            invalidate(grammarVersion);
+        }
+        Boolean result = entries.get(word);
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Guarda el resultado de la palabra, expulsando las entradas usadas hace
+     * más tiempo si se superan los límites.
+     */
+    synchronized void put(long grammarVersion, String word, boolean result) {
+        if (grammarVersion != version) {
+            invalidate(grammarVersion);
+        }
+        long size = sizeOf(word);
+        if (size > maxBytes) {
+            return;
+        }
+        if (entries.put(word, result) == null) {
+            bytes += size;
+        }
+        Iterator<Map.Entry<String, Boolean>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= sizeOf(eldest.next().getKey());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void invalidate(long grammarVersion) {
+        entries.clear();
+        bytes = 0;
+        version = grammarVersion;
+    }
+
+    private static long sizeOf(String word) {
+        return ENTRY_OVERHEAD + 2L * word.length();
+    }
+
+    /**
+     * Vacía la caché sin tocar los contadores.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return Número de consultas que encontraron el resultado en la caché.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return Número de consultas que no lo encontraron.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return Número de entradas expulsadas por superar los límites.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Número de palabras guardadas.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Memoria aproximada que ocupan las palabras guardadas, en bytes.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,167 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.math.BigInteger;
+
+/**
+ * Cuenta las derivaciones distintas de una palabra sin construir los árboles.
+ *
+ * A partir de la tabla CYK ya rellena se calcula, para cada celda y cada no
+ * terminal X de la celda, el número de derivaciones de la subcadena desde X:
+ * las de las celdas de longitud 1 valen 1, y las demás son la suma, para cada
+ * punto de corte y cada regla X::=BC, del producto de las de B y C. Sólo se
+ * guarda un contador por cada bit activo de la tabla, por lo que la memoria es
+ * proporcional a su contenido.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class DerivationCounter {
+
+    private final CompiledGrammar grammar;
+    private final int[] cells;
+    private final int[] offsets;
+    private final int n;
+    //El contador de X en la celda c está en base[c] + número de bits de la celda por debajo de X
+    private final int[] base;
+    private final int total;
+
+    DerivationCounter(CompiledGrammar grammar, CYKChart chart) {
+        this.grammar = grammar;
+        this.cells = chart.cells();
+        this.offsets = chart.offsets();
+        this.n = chart.size();
+        int cellCount = n * (n + 1) / 2;
+        this.base = new int[cellCount];
+        int next = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            base[cell] = next;
+            next += Integer.bitCount(cells[cell]);
+        }
+        this.total = next;
+    }
+
+    private int slot(int cell, int symbol) {
+        return base[cell] + Integer.bitCount(cells[cell] & ((1 << symbol) - 1));
+    }
+
+    /**
+     * @param modulus Módulo de las cuentas, o 0 para que se saturen en
+     * Long.MAX_VALUE en lugar de desbordarse.
+     * @return Número de derivaciones de la palabra completa desde el axioma.
+     */
+    long count(long modulus) {
+        int start = grammar.startSymbol();
+        if (n == 0 || (cells[offsets[n]] & (1 << start)) == 0) {
+            return 0;
+        }
+        long[] counts = new long[total];
+        for (int i = 0; i < n; i++) {
+            for (int mask = cells[i]; mask != 0; mask &= mask - 1) {
+                counts[slot(i, Integer.numberOfTrailingZeros(mask))] = modulus == 1 ? 0 : 1;
+            }
+        }
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length <= n; i++) {
+                int cell = offsets[length] + i;
+                if (cells[cell] == 0) {
+                    continue;
+                }
+                for (int k = 1; k < length; k++) {
+                    int leftCell = offsets[k] + i;
+                    int rightCell = offsets[length - k] + i + k;
+                    int rights = cells[rightCell];
+                    if (cells[leftCell] == 0 || rights == 0) {
+                        continue;
+                    }
+                    for (int lefts = cells[leftCell]; lefts != 0; lefts &= lefts - 1) {
+                        int left = Integer.numberOfTrailingZeros(lefts);
+                        long leftCount = counts[slot(leftCell, left)];
+                        for (int others = rights; others != 0; others &= others - 1) {
+                            int right = Integer.numberOfTrailingZeros(others);
+                            int heads = grammar.binaryRule(left, right);
+                            if (heads == 0) {
+                                continue;
+                            }
+                            long product = multiply(leftCount, counts[slot(rightCell, right)], modulus);
+                            for (; heads != 0; heads &= heads - 1) {
+                                int index = slot(cell, Integer.numberOfTrailingZeros(heads));
+                                counts[index] = add(counts[index], product, modulus);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return counts[slot(offsets[n], start)];
+    }
+
+    private static long multiply(long a, long b, long modulus) {
+        if (modulus != 0) {
+            return a * b % modulus;
+        }
+        if (a != 0 && b > Long.MAX_VALUE / a) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+
+    private static long add(long a, long b, long modulus) {
+        long sum = a + b;
+        if (modulus != 0) {
+            return sum % modulus;
+        }
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * @return Número exacto de derivaciones de la palabra completa desde el
+     * axioma.
+     */
+    BigInteger countExact() {
+        int start = grammar.startSymbol();
+        if (n == 0 || (cells[offsets[n]] & (1 << start)) == 0) {
+            return BigInteger.ZERO;
+        }
+        BigInteger[] counts = new BigInteger[total];
+        for (int i = 0; i < n; i++) {
+            for (int mask = cells[i]; mask != 0; mask &= mask - 1) {
+                counts[slot(i, Integer.numberOfTrailingZeros(mask))] = BigInteger.ONE;
+            }
+        }
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length <= n; i++) {
+                int cell = offsets[length] + i;
+                if (cells[cell] == 0) {
+                    continue;
+                }
+                for (int mask = cells[cell]; mask != 0; mask &= mask - 1) {
+                    counts[slot(cell, Integer.numberOfTrailingZeros(mask))] = BigInteger.ZERO;
+                }
+                for (int k = 1; k < length; k++) {
+                    int leftCell = offsets[k] + i;
+                    int rightCell = offsets[length - k] + i + k;
+                    int rights = cells[rightCell];
+                    if (cells[leftCell] == 0 || rights == 0) {
+                        continue;
+                    }
+                    for (int lefts = cells[leftCell]; lefts != 0; lefts &= lefts - 1) {
+                        int left = Integer.numberOfTrailingZeros(lefts);
+                        BigInteger leftCount = counts[slot(leftCell, left)];
+                        for (int others = rights; others != 0; others &= others - 1) {
+                            int right = Integer.numberOfTrailingZeros(others);
+                            int heads = grammar.binaryRule(left, right);
+                            if (heads == 0) {
+                                continue;
+                            }
+                            BigInteger product = leftCount.multiply(counts[slot(rightCell, right)]);
+                            for (; heads != 0; heads &= heads - 1) {
+                                int index = slot(cell, Integer.numberOfTrailingZeros(heads));
+                                counts[index] = counts[index].add(product);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return counts[slot(offsets[n], start)];
+    }
+}
@@ -0,0 +1,195 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.interfaces.CYKAlgorithmInterface;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación de CYKAlgorithmInterface con el algoritmo de Earley (ver
+ * {@link EarleyRecognizer}), que trabaja directamente con la gramática sin
+ * pasarla a FNC y reconoce en tiempo lineal las palabras de gramáticas casi
+ * deterministas, en lugar del tiempo cúbico de CYK.
+ *
+ * Admite producciones de cualquier longitud formadas por terminales y no
+ * terminales ya añadidos, incluida la producción vacía (""). Para poder
+ * intercambiarse con {@link CYKAlgorithm}, la palabra vacía nunca se deriva.
+ * {@link #compile()} devuelve la gramática convertida a FNC con
+ * {@link CNFNormalizer}. No usa el algoritmo de Valiant, así que
+ * setValiantThreshold siempre lanza CYKAlgorithmException.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class EarleyAlgorithm implements CYKAlgorithmInterface, CompilableGrammar {
+
+    private final List<Character> nonTerminals = new ArrayList<>();
+    private final List<Character> terminals = new ArrayList<>();
+    private char startSymbol;
+    private final Map<Character, List<String>> productions = new HashMap<>();
+    //Reconocedor y gramática compilada actuales, null si ha cambiado desde que se crearon
+    private EarleyRecognizer recognizer;
+    private CompiledGrammar compiled;
+
+    @Override
+    public void addNonTerminal(char nonterminal) throws CYKAlgorithmException {
+        if (nonterminal < 'A' || nonterminal > 'Z' || nonTerminals.contains(nonterminal)) {
+            throw new CYKAlgorithmException();
+        }
+        grammarChanged();
+        nonTerminals.add(nonterminal);
+    }
+
+    @Override
+    public void addTerminal(char terminal) throws CYKAlgorithmException {
+        if (terminal < 'a' || terminal > 'z' || terminals.contains(terminal)) {
+            throw new CYKAlgorithmException();
+        }
+        grammarChanged();
+        terminals.add(terminal);
+    }
+
+    @Override
+    public void setStartSymbol(char nonterminal) throws CYKAlgorithmException {
+        if (!nonTerminals.contains(nonterminal)) {
+            throw new CYKAlgorithmException();
+        }
+        grammarChanged();
+        startSymbol = nonterminal;
+    }
+
+    /**
+     * Añade una producción de cualquier longitud.
+     *
+     * @param nonterminal Parte izquierda, por ejemplo 'S'.
+     * @param production Parte derecha, por ejemplo "aSb", o "" para la
+     * producción vacía.
+     * @throws CYKAlgorithmException Si algún símbolo no se ha añadido a la
+     * gramática o la producción ya existe.
+     */
+    @Override
+    public void addProduction(char nonterminal, String production) throws CYKAlgorithmException {
+        if (!nonTerminals.contains(nonterminal)) {
+            throw new CYKAlgorithmException();
+        }
+        for (int i = 0; i < production.length(); i++) {
+            char symbol = production.charAt(i);
+            if (!nonTerminals.contains(symbol) && !terminals.contains(symbol)) {
+                throw new CYKAlgorithmException();
+            }
+        }
+        List<String> list = productions.computeIfAbsent(nonterminal, key -> new ArrayList<>());
+        if (list.contains(production)) {
+            throw new CYKAlgorithmException();
+        }
+        grammarChanged();
+        list.add(production);
+    }
+
+    @Override
+    public boolean isDerived(String word) throws CYKAlgorithmException {
+        EarleyRecognizer current = recognizer();
+        if (word.isEmpty()) {
+            return false;
+        }
+        return current.recognize(tokens(current, word));
+    }
+
+    /**
+     * Devuelve los conjuntos de Earley de la palabra, uno por posición,
+     * con un ítem por línea en la forma "S::=a·Sb,0" (producción, punto y
+     * posición de origen).
+     */
+    @Override
+    public String algorithmStateToString(String word) throws CYKAlgorithmException {
+        EarleyRecognizer current = recognizer();
+        EarleyRecognizer.EarleySet[] sets = current.run(tokens(current, word));
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < sets.length && sets[i] != null; i++) {
+            out.append(i).append(":\n");
+            current.appendSet(out, sets[i]);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return La gramática convertida a FNC y compilada para el algoritmo
+     * CYK, que reconoce las mismas palabras. Se guarda hasta que la gramática
+     * cambia.
+     */
+    @Override
+    public CompiledGrammar compile() throws CYKAlgorithmException {
+        if (startSymbol == 0) {
+            throw new CYKAlgorithmException();
+        }
+        if (compiled == null) {
+            CNFNormalizer normalizer = new CNFNormalizer(startSymbol);
+            for (char nonterminal : nonTerminals) {
+                for (String production : productions.getOrDefault(nonterminal, List.of())) {
+                    normalizer.addProduction(nonterminal, production);
+                }
+            }
+            compiled = normalizer.normalize().compile();
+        }
+        return compiled;
+    }
+
+    @Override
+    public void removeGrammar() {
+        grammarChanged();
+        nonTerminals.clear();
+        terminals.clear();
+        productions.clear();
+        startSymbol = 0;
+    }
+
+    @Override
+    public String getProductions(char nonterminal) {
+        List<String> list = productions.get(nonterminal);
+        if (list == null) {
+            return "";
+        }
+        return nonterminal + "::=" + String.join("|", list);
+    }
+
+    @Override
+    public String getGrammar() {
+        StringBuilder grammar = new StringBuilder();
+        for (char nonterminal : nonTerminals) {
+            if (productions.containsKey(nonterminal)) {
+                grammar.append(getProductions(nonterminal)).append('\n');
+            }
+        }
+        return grammar.toString();
+    }
+
+    /**
+     * Descarta el reconocedor y la gramática compilada.
+     */
+    private void grammarChanged() {
+        recognizer = null;
+        compiled = null;
+    }
+
+    private EarleyRecognizer recognizer() throws CYKAlgorithmException {
+        if (startSymbol == 0) {
+            throw new CYKAlgorithmException();
+        }
+        if (recognizer == null) {
+            recognizer = new EarleyRecognizer(nonTerminals, terminals, productions, startSymbol);
+        }
+        return recognizer;
+    }
+
+    private static int[] tokens(EarleyRecognizer recognizer, String word) throws CYKAlgorithmException {
+        int[] tokens = new int[word.length()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = recognizer.terminalId(word.charAt(i));
+            if (tokens[i] < 0) {
+                throw new CYKAlgorithmException();
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,411 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconocedor de Earley para gramáticas independientes del contexto
+ * cualesquiera, con la optimización de Leo para la recursividad por la
+ * derecha y el tratamiento de Aycock y Horspool para los no terminales que
+ * generan la palabra vacía.
+ *
+ * Un ítem es una regla con un punto (la parte ya reconocida) y la posición
+ * donde empezó. Todas las posiciones de punto de todas las reglas se numeran
+ * seguidas, de modo que un ítem cabe en un <code>long</code>: posición de
+ * punto en la parte alta y origen en la baja. Cada conjunto guarda, por no
+ * terminal, los ítems que esperan a ese no terminal; al completarlo se
+ * avanzan todos ellos, salvo que haya un ítem de Leo: si el único que espera
+ * a B lo tiene como último símbolo, la cadena de compleciones que seguiría es
+ * determinista y se salta directamente a su último ítem. Así las gramáticas
+ * LR-regulares se reconocen en tiempo lineal.
+ *
+ * Se añade una regla inicial S'::=S para saber si el axioma genera la
+ * palabra completa. La instancia no cambia tras construirse y puede usarse
+ * desde varios hilos a la vez.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class EarleyRecognizer {
+
+    //Valor de postdot para las posiciones al final de una regla
+    private static final int COMPLETE = Integer.MIN_VALUE;
+    private static final long NONE = -1L;
+
+    private final char[] nonTerminalSymbols;
+    //Índice del terminal 'x' en terminalIds['x' - 'a'], o -1
+    private final int[] terminalIds;
+    //Por posición de punto: símbolo siguiente (no terminal >= 0, terminal t como ~t, o COMPLETE)
+    private final int[] postdot;
+    //Por posición de punto: no terminal de la izquierda de su regla
+    private final int[] headOf;
+    //Por posición de punto: índice en postdot del principio de su regla
+    private final int[] ruleStartOf;
+    //Por no terminal: posición de punto inicial de cada una de sus reglas
+    private final int[][] rulesByHead;
+    private final boolean[] nullable;
+    private final int acceptDot;
+
+    /**
+     * @param nonTerminals No terminales, en orden.
+     * @param terminals Terminales, en orden.
+     * @param productions Producciones de cada no terminal; las mayúsculas
+     * son no terminales y las minúsculas terminales.
+     * @param startSymbol Axioma.
+     */
+    EarleyRecognizer(List<Character> nonTerminals, List<Character> terminals,
+            Map<Character, List<String>> productions, char startSymbol) {
+        int count = nonTerminals.size();
+        int[] nonTerminalIds = new int[26];
+        nonTerminalSymbols = new char[count];
+        for (int i = 0; i < count; i++) {
+            nonTerminalSymbols[i] = nonTerminals.get(i);
+            nonTerminalIds[nonTerminalSymbols[i] - 'A'] = i;
+        }
+        terminalIds = new int[26];
+        Arrays.fill(terminalIds, -1);
+        for (int i = 0; i < terminals.size(); i++) {
+            terminalIds[terminals.get(i) - 'a'] = i;
+        }
+
+        //La regla S'::=S usa el índice count como no terminal
+        int positions = 2;
+        int rules = 1;
+        for (List<String> list : productions.values()) {
+            for (String production : list) {
+                positions += production.length() + 1;
+                rules++;
+            }
+        }
+        postdot = new int[positions];
+        headOf = new int[positions];
+        ruleStartOf = new int[positions];
+        int[] ruleCount = new int[count + 1];
+        int[] ruleStarts = new int[rules];
+        int[] ruleHeads = new int[rules];
+
+        int next = 0;
+        int rule = 0;
+        ruleStarts[rule] = next;
+        ruleHeads[rule++] = count;
+        postdot[next] = nonTerminalIds[startSymbol - 'A'];
+        postdot[next + 1] = COMPLETE;
+        headOf[next] = headOf[next + 1] = count;
+        next += 2;
+        acceptDot = 0;
+        for (char head : nonTerminals) {
+            for (String production : productions.getOrDefault(head, List.of())) {
+                int id = nonTerminalIds[head - 'A'];
+                ruleStarts[rule] = next;
+                ruleHeads[rule++] = id;
+                ruleCount[id]++;
+                for (int i = 0; i <= production.length(); i++) {
+                    if (i == production.length()) {
+                        postdot[next + i] = COMPLETE;
+                    } else {
+                        char symbol = production.charAt(i);
+                        postdot[next + i] = Character.isUpperCase(symbol)
+                                ? nonTerminalIds[symbol - 'A']
+                                : ~terminalIds[symbol - 'a'];
+                    }
+                    headOf[next + i] = id;
+                    ruleStartOf[next + i] = next;
+                }
+                next += production.length() + 1;
+            }
+        }
+        rulesByHead = new int[count + 1][];
+        for (int id = 0; id <= count; id++) {
+            rulesByHead[id] = new int[ruleCount[id]];
+            ruleCount[id] = 0;
+        }
+        for (int r = 1; r < rules; r++) {
+            rulesByHead[ruleHeads[r]][ruleCount[ruleHeads[r]]++] = ruleStarts[r];
+        }
+
+        nullable = new boolean[count + 1];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 1; r < rules; r++) {
+                int position = ruleStarts[r];
+                while (postdot[position] >= 0 && nullable[postdot[position]]) {
+                    position++;
+                }
+                if (postdot[position] == COMPLETE && !nullable[ruleHeads[r]]) {
+                    nullable[ruleHeads[r]] = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Índice denso del terminal, o -1 si no es un terminal de la
+     * gramática.
+     */
+    int terminalId(char terminal) {
+        int index = terminal - 'a';
+        return index < 0 || index >= 26 ? -1 : terminalIds[index];
+    }
+
+    /**
+     * @param word Índices de los terminales de la palabra.
+     * @return TRUE si el axioma genera la palabra.
+     */
+    boolean recognize(int[] word) {
+        EarleySet[] sets = run(word);
+        EarleySet last = sets[word.length];
+        return last != null && last.seen.contains(item(acceptDot + 1, 0));
+    }
+
+    /**
+     * Calcula los conjuntos de Earley de la palabra. Si algún conjunto queda
+     * vacío la palabra ya no puede derivarse y los siguientes son null.
+     */
+    EarleySet[] run(int[] word) {
+        int n = word.length;
+        int count = nonTerminalSymbols.length;
+        EarleySet[] sets = new EarleySet[n + 1];
+        sets[0] = new EarleySet(count + 1);
+        add(sets[0], item(acceptDot, 0));
+        boolean[] predicted = new boolean[count + 1];
+
+        for (int i = 0; i <= n; i++) {
+            EarleySet set = sets[i];
+            if (i < n) {
+                sets[i + 1] = new EarleySet(count + 1);
+            }
+            Arrays.fill(predicted, false);
+            for (int p = 0; p < set.size; p++) {
+                long item = set.items[p];
+                int dot = (int) (item >>> 32);
+                int origin = (int) item;
+                int symbol = postdot[dot];
+                if (symbol == COMPLETE) {
+                    complete(sets, i, headOf[dot], origin);
+                } else if (symbol >= 0) {
+                    if (!predicted[symbol]) {
+                        predicted[symbol] = true;
+                        for (int start : rulesByHead[symbol]) {
+                            add(set, item(start, i));
+                        }
+                    }
+                    if (nullable[symbol]) {
+                        add(set, item + (1L << 32));
+                    }
+                } else if (i < n && ~symbol == word[i]) {
+                    add(sets[i + 1], item + (1L << 32));
+                }
+            }
+            if (i < n) {
+                if (sets[i + 1].size == 0) {
+                    sets[i + 1] = null;
+                    break;
+                }
+                computeLeo(sets, i);
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Avanza los ítems que esperaban al no terminal <code>symbol</code>, que
+     * genera la subcadena entre <code>origin</code> e <code>i</code>.
+     */
+    private void complete(EarleySet[] sets, int i, int symbol, int origin) {
+        EarleySet set = sets[i];
+        EarleySet from = sets[origin];
+        if (origin < i) {
+            long leo = from.leo[symbol];
+            if (leo != NONE) {
+                add(set, leo);
+                return;
+            }
+            for (int k = 0; k < from.waitingCount[symbol]; k++) {
+                add(set, from.waiting[symbol][k] + (1L << 32));
+            }
+        } else {
+            //El conjunto aún crece; los que esperen después ya avanzan al predecir (nullable)
+            for (int k = 0; k < set.waitingCount[symbol]; k++) {
+                add(set, set.waiting[symbol][k] + (1L << 32));
+            }
+        }
+    }
+
+    /**
+     * Calcula los ítems de Leo del conjunto j, ya terminado.
+     */
+    private void computeLeo(EarleySet[] sets, int j) {
+        EarleySet set = sets[j];
+        set.leo = new long[set.waitingCount.length];
+        byte[] state = new byte[set.leo.length];
+        for (int symbol = 0; symbol < set.leo.length; symbol++) {
+            leo(sets, j, symbol, state);
+        }
+    }
+
+    private long leo(EarleySet[] sets, int j, int symbol, byte[] state) {
+        EarleySet set = sets[j];
+        if (state[symbol] == 2) {
+            return set.leo[symbol];
+        }
+        if (state[symbol] == 1) {
+            //Ciclo de producciones unitarias: no hay cadena determinista
+            return NONE;
+        }
+        state[symbol] = 1;
+        long result = NONE;
+        if (set.waitingCount[symbol] == 1) {
+            long item = set.waiting[symbol][0];
+            int dot = (int) (item >>> 32);
+            if (postdot[dot + 1] == COMPLETE) {
+                long advanced = item + (1L << 32);
+                int origin = (int) item;
+                int head = headOf[dot];
+                long deeper = origin < j ? sets[origin].leo[head] : leo(sets, j, head, state);
+                result = deeper != NONE ? deeper : advanced;
+            }
+        }
+        set.leo[symbol] = result;
+        state[symbol] = 2;
+        return result;
+    }
+
+    private void add(EarleySet set, long item) {
+        if (!set.seen.add(item)) {
+            return;
+        }
+        if (set.size == set.items.length) {
+            set.items = Arrays.copyOf(set.items, 2 * set.size);
+        }
+        set.items[set.size++] = item;
+        int symbol = postdot[(int) (item >>> 32)];
+        if (symbol >= 0) {
+            if (set.waiting[symbol] == null) {
+                set.waiting[symbol] = new long[4];
+            } else if (set.waitingCount[symbol] == set.waiting[symbol].length) {
+                set.waiting[symbol] = Arrays.copyOf(set.waiting[symbol], 2 * set.waitingCount[symbol]);
+            }
+            set.waiting[symbol][set.waitingCount[symbol]++] = item;
+        }
+    }
+
+    private static long item(int dot, int origin) {
+        return ((long) dot << 32) | origin;
+    }
+
+    /**
+     * Escribe los ítems de un conjunto, uno por línea, como "S::=a·Sb,0". La
+     * regla inicial S'::=S no se escribe.
+     */
+    void appendSet(StringBuilder out, EarleySet set) {
+        for (int p = 0; p < set.size; p++) {
+            int dot = (int) (set.items[p] >>> 32);
+            if (headOf[dot] == nonTerminalSymbols.length) {
+                continue;
+            }
+            int start = ruleStartOf[dot];
+            out.append(nonTerminalSymbols[headOf[dot]]).append("::=");
+            for (int position = start; ; position++) {
+                if (position == dot) {
+                    out.append('·');
+                }
+                int symbol = postdot[position];
+                if (symbol == COMPLETE) {
+                    break;
+                }
+                out.append(symbol >= 0 ? nonTerminalSymbols[symbol] : terminalSymbol(~symbol));
+            }
+            out.append(',').append((int) set.items[p]).append('\n');
+        }
+    }
+
+    private char terminalSymbol(int id) {
+        for (int index = 0; index < 26; index++) {
+            if (terminalIds[index] == id) {
+                return (char) ('a' + index);
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Conjunto de Earley de una posición.
+     */
+    static final class EarleySet {
+
+        private long[] items = new long[16];
+        private int size;
+        private final LongSet seen = new LongSet();
+        //Ítems que esperan a cada no terminal
+        private final long[][] waiting;
+        private final int[] waitingCount;
+        //Ítem de Leo de cada no terminal, o NONE; null hasta que el conjunto se termina
+        private long[] leo;
+
+        EarleySet(int nonTerminals) {
+            this.waiting = new long[nonTerminals][];
+            this.waitingCount = new int[nonTerminals];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Conjunto de longs no negativos con direccionamiento abierto.
+     */
+    private static final class LongSet {
+
+        private long[] table = new long[32];
+        private int size;
+
+        LongSet() {
+            Arrays.fill(table, NONE);
+        }
+
+        boolean contains(long value) {
+            int mask = table.length - 1;
+            for (int slot = hash(value) & mask; ; slot = (slot + 1) & mask) {
+                if (table[slot] == value) {
+                    return true;
+                }
+                if (table[slot] == NONE) {
+                    return false;
+                }
+            }
+        }
+
+        boolean add(long value) {
+            if (2 * (size + 1) > table.length) {
+                long[] old = table;
+                table = new long[2 * old.length];
+                Arrays.fill(table, NONE);
+                size = 0;
+                for (long entry : old) {
+                    if (entry != NONE) {
+                        add(entry);
+                    }
+                }
+            }
+            int mask = table.length - 1;
+            for (int slot = hash(value) & mask; ; slot = (slot + 1) & mask) {
+                if (table[slot] == value) {
+                    return false;
+                }
+                if (table[slot] == NONE) {
+                    table[slot] = value;
+                    size++;
+                    return true;
+                }
+            }
+        }
+
+        private static int hash(long value) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Reconocedor descendente con memoria: en lugar de rellenar toda la tabla CYK
+ * parte del objetivo "el axioma genera la palabra completa" y sólo evalúa los
+ * subobjetivos (X, inicio, longitud) a los que se llega desde él, parando en
+ * cuanto un punto de corte tiene éxito.
+ *
+ * Antes de buscar un subobjetivo se comprueba con las esquinas de la
+ * gramática (ver {@link CompiledGrammar}) que su primer símbolo puede ser el
+ * primero de una palabra generada por X y su último símbolo el último; si no,
+ * se descarta sin probar ningún punto de corte. Es la versión en FNC de los
+ * conjuntos FIRST y LAST de terminales.
+ *
+ * Los resultados se guardan en dos máscaras por celda, con el mismo orden de
+ * celdas que {@link CYKChart}: los no terminales ya resueltos para esa
+ * subcadena y los que la generan. Como en FNC cada subobjetivo es más corto
+ * que el que lo pide no hay ciclos, y los objetivos pendientes se guardan en
+ * una pila explícita, de modo que la profundidad no depende de la pila de
+ * llamadas de Java. Los puntos de corte y reglas de un objetivo se recorren
+ * en un bucle sin pasar por la pila mientras sus subobjetivos ya estén
+ * resueltos.
+ *
+ * No es una alternativa general a isDerived: sólo compensa cuando la mayoría
+ * de los subobjetivos se descartan por las esquinas o el primer punto de
+ * corte tiene éxito, como en gramáticas de listas o casi deterministas. Con
+ * gramáticas muy ambiguas, como la de tantas a como b, casi todas las celdas
+ * son alcanzables y recorrerlas objetivo a objetivo es bastante más lento que
+ * el bucle CYK, que trata todos los no terminales de una celda a la vez.
+ *
+ * Cada instancia sirve para una única palabra y no debe compartirse entre
+ * hilos.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class GoalDirectedRecognizer {
+
+    //Estados de un objetivo de la pila
+    private static final int TRYING = 0;
+    private static final int WAITING_LEFT = 1;
+    private static final int WAITING_RIGHT = 2;
+
+    //rulesByHead[X] = reglas X::=BC empaquetadas como (B << 5) | C
+    private final int[][] rulesByHead;
+    //Máscaras de los no terminales por los que puede empezar y acabar cada X
+    private final int[] leftCorners;
+    private final int[] rightCorners;
+    //Máscara de no terminales que derivan cada símbolo de la palabra
+    private final int[] lexical;
+    private final int n;
+    private final int[] offsets;
+    private final int[] known;
+    private final int[] derived;
+
+    //Pila de objetivos: no terminal, inicio, longitud, punto de corte, regla y estado
+    private int[] symbols = new int[16];
+    private int[] starts = new int[16];
+    private int[] lengths = new int[16];
+    private int[] splits = new int[16];
+    private int[] rules = new int[16];
+    private int[] states = new int[16];
+    private int top = -1;
+
+    /**
+     * @param rulesByHead Reglas binarias agrupadas por no terminal de la
+     * izquierda.
+     * @param leftCorners Para cada X, máscara de los Y tales que X deriva
+     * una forma que empieza por Y (incluido el propio X).
+     * @param rightCorners Igual que leftCorners para el final.
+     * @param lexical Máscara de los no terminales que derivan cada símbolo de
+     * la palabra.
+     */
+    GoalDirectedRecognizer(int[][] rulesByHead, int[] leftCorners, int[] rightCorners, int[] lexical) {
+        this.rulesByHead = rulesByHead;
+        this.leftCorners = leftCorners;
+        this.rightCorners = rightCorners;
+        this.lexical = lexical;
+        this.n = lexical.length;
+        this.offsets = new int[n + 1];
+        for (int length = 1; length <= n; length++) {
+            offsets[length] = (length - 1) * n - (length - 1) * (length - 2) / 2;
+        }
+        int cellCount = n * (n + 1) / 2;
+        this.known = new int[cellCount];
+        this.derived = new int[cellCount];
+    }
+
+    /**
+     * @return TRUE si el no terminal genera la palabra completa.
+     */
+    boolean isDerived(int symbol) {
+        if (n == 0) {
+            return false;
+        }
+        int result = lookup(symbol, 0, n);
+        if (result >= 0) {
+            return result == 1;
+        }
+        push(symbol, 0, n);
+        boolean last = false;
+        while (top >= 0) {
+            int start = starts[top];
+            int length = lengths[top];
+            int split = splits[top];
+            int rule = rules[top];
+            int[] candidates = rulesByHead[symbols[top]];
+            //Al volver de un subobjetivo, last es su resultado
+            boolean checkRight = false;
+            if (states[top] == WAITING_LEFT) {
+                if (last) {
+                    checkRight = true;
+                } else {
+                    rule++;
+                }
+            } else if (states[top] == WAITING_RIGHT) {
+                if (last) {
+                    last = resolve(true);
+                    continue;
+                }
+                rule++;
+            }
+            while (true) {
+                if (!checkRight) {
+                    if (rule == candidates.length) {
+                        rule = 0;
+                        split++;
+                    }
+                    if (split == length) {
+                        last = resolve(false);
+                        break;
+                    }
+                    int b = candidates[rule] >>> 5;
+                    int left = lookup(b, start, split);
+                    if (left == 0) {
+                        rule++;
+                        continue;
+                    }
+                    if (left < 0) {
+                        suspend(split, rule, WAITING_LEFT);
+                        push(b, start, split);
+                        break;
+                    }
+                }
+                checkRight = false;
+                int c = candidates[rule] & 31;
+                int right = lookup(c, start + split, length - split);
+                if (right == 1) {
+                    last = resolve(true);
+                    break;
+                }
+                if (right == 0) {
+                    rule++;
+                    continue;
+                }
+                suspend(split, rule, WAITING_RIGHT);
+                push(c, start + split, length - split);
+                break;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return 1 si el no terminal genera la subcadena, 0 si no la genera y -1
+     * si todavía no se sabe.
+     */
+    private int lookup(int symbol, int start, int length) {
+        int bit = 1 << symbol;
+        if (length == 1) {
+            return (lexical[start] & bit) != 0 ? 1 : 0;
+        }
+        if (rulesByHead[symbol].length == 0
+                || (lexical[start] & leftCorners[symbol]) == 0
+                || (lexical[start + length - 1] & rightCorners[symbol]) == 0) {
+            return 0;
+        }
+        int cell = offsets[length] + start;
+        if ((known[cell] & bit) == 0) {
+            return -1;
+        }
+        return (derived[cell] & bit) != 0 ? 1 : 0;
+    }
+
+    /**
+     * Guarda dónde se ha quedado el objetivo de la cima antes de apilar uno
+     * de sus subobjetivos.
+     */
+    private void suspend(int split, int rule, int state) {
+        splits[top] = split;
+        rules[top] = rule;
+        states[top] = state;
+    }
+
+    private void push(int symbol, int start, int length) {
+        if (++top == symbols.length) {
+            int size = 2 * symbols.length;
+            symbols = Arrays.copyOf(symbols, size);
+            starts = Arrays.copyOf(starts, size);
+            lengths = Arrays.copyOf(lengths, size);
+            splits = Arrays.copyOf(splits, size);
+            rules = Arrays.copyOf(rules, size);
+            states = Arrays.copyOf(states, size);
+        }
+        symbols[top] = symbol;
+        starts[top] = start;
+        lengths[top] = length;
+        splits[top] = 1;
+        rules[top] = 0;
+        states[top] = TRYING;
+    }
+
+    /**
+     * Guarda el resultado del objetivo de la cima y lo saca de la pila.
+     */
+    private boolean resolve(boolean result) {
+        int bit = 1 << symbols[top];
+        int cell = offsets[lengths[top]] + starts[top];
+        known[cell] |= bit;
+        if (result) {
+            derived[cell] |= bit;
+        }
+        top--;
+        return result;
+    }
+}
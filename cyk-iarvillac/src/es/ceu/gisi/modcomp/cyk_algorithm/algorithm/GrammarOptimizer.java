@@ -0,0 +1,172 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Simplificación de una gramática en FNC que no cambia el lenguaje generado:
+ * elimina los no terminales improductivos (que no generan ninguna palabra) y
+ * los inaccesibles desde el axioma junto con sus producciones, y une los no
+ * terminales que tienen exactamente las mismas producciones.
+ *
+ * Los no terminales que quedan conservan el orden en que se añadieron, así
+ * que al compilar la gramática reciben índices consecutivos.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class GrammarOptimizer {
+
+    private final List<Character> nonTerminals;
+    private final Map<Character, List<String>> productions;
+    private final char startSymbol;
+
+    /**
+     * @param nonTerminals No terminales de la gramática, en orden.
+     * @param productions Producciones de cada no terminal, ya validadas.
+     * @param startSymbol Axioma de la gramática.
+     */
+    GrammarOptimizer(List<Character> nonTerminals, Map<Character, List<String>> productions, char startSymbol) {
+        this.nonTerminals = new ArrayList<>(nonTerminals);
+        this.productions = new HashMap<>();
+        for (char nonTerminal : nonTerminals) {
+            this.productions.put(nonTerminal, new ArrayList<>(productions.getOrDefault(nonTerminal, new ArrayList<>())));
+        }
+        this.startSymbol = startSymbol;
+    }
+
+    /**
+     * Aplica todas las simplificaciones.
+     */
+    void optimize() {
+        removeUnproductive();
+        removeUnreachable();
+        while (mergeEquivalent()) {
+            //Al unir unos no terminales pueden quedar otros con las mismas producciones
+        }
+    }
+
+    /**
+     * @return Los no terminales que quedan, en el orden original.
+     */
+    List<Character> nonTerminals() {
+        return nonTerminals;
+    }
+
+    /**
+     * @return Las producciones de los no terminales que quedan; los que no
+     * tienen ninguna no aparecen.
+     */
+    Map<Character, List<String>> productions() {
+        Map<Character, List<String>> result = new HashMap<>();
+        for (Map.Entry<Character, List<String>> entry : productions.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void removeUnproductive() {
+        List<Character> productive = new ArrayList<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (char nonTerminal : nonTerminals) {
+                if (productive.contains(nonTerminal)) {
+                    continue;
+                }
+                for (String production : productions.get(nonTerminal)) {
+                    if (production.length() == 1
+                            || (productive.contains(production.charAt(0)) && productive.contains(production.charAt(1)))) {
+                        productive.add(nonTerminal);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        //El axioma se conserva siempre, aunque el lenguaje sea vacío
+        retain(productive, true);
+    }
+
+    private void removeUnreachable() {
+        List<Character> reachable = new ArrayList<>();
+        reachable.add(startSymbol);
+        for (int i = 0; i < reachable.size(); i++) {
+            for (String production : productions.get(reachable.get(i))) {
+                if (production.length() == 2) {
+                    for (char symbol : production.toCharArray()) {
+                        if (!reachable.contains(symbol)) {
+                            reachable.add(symbol);
+                        }
+                    }
+                }
+            }
+        }
+        retain(reachable, false);
+    }
+
+    /**
+     * Elimina los no terminales que no están en <code>kept</code> (salvo el
+     * axioma) y todas las producciones en las que aparecen.
+     */
+    private void retain(List<Character> kept, boolean dropProductionsOfStart) {
+        nonTerminals.removeIf(symbol -> symbol != startSymbol && !kept.contains(symbol));
+        productions.keySet().retainAll(nonTerminals);
+        for (List<String> list : productions.values()) {
+            list.removeIf(production -> production.length() == 2
+                    && (!kept.contains(production.charAt(0)) || !kept.contains(production.charAt(1))));
+        }
+        if (dropProductionsOfStart && !kept.contains(startSymbol)) {
+            productions.get(startSymbol).clear();
+        }
+    }
+
+    /**
+     * Une cada grupo de no terminales con las mismas producciones en uno solo
+     * (el axioma si está en el grupo, o el primero añadido en otro caso).
+     *
+     * @return TRUE si se ha unido algún no terminal.
+     */
+    private boolean mergeEquivalent() {
+        Map<TreeSet<String>, Character> representatives = new LinkedHashMap<>();
+        Map<Character, Character> renamed = new HashMap<>();
+        //El axioma va primero para que sea siempre el representante de su grupo
+        representatives.put(new TreeSet<>(productions.get(startSymbol)), startSymbol);
+        for (char nonTerminal : nonTerminals) {
+            if (nonTerminal == startSymbol) {
+                continue;
+            }
+            TreeSet<String> key = new TreeSet<>(productions.get(nonTerminal));
+            Character representative = representatives.putIfAbsent(key, nonTerminal);
+            if (representative != null) {
+                renamed.put(nonTerminal, representative);
+            }
+        }
+        if (renamed.isEmpty()) {
+            return false;
+        }
+        nonTerminals.removeAll(renamed.keySet());
+        productions.keySet().retainAll(nonTerminals);
+        for (List<String> list : productions.values()) {
+            List<String> rewritten = new ArrayList<>();
+            for (String production : list) {
+                String result = production;
+                if (production.length() == 2) {
+                    result = "" + renamed.getOrDefault(production.charAt(0), production.charAt(0))
+                            + renamed.getOrDefault(production.charAt(1), production.charAt(1));
+                }
+                if (!rewritten.contains(result)) {
+                    rewritten.add(result);
+                }
+            }
+            list.clear();
+            list.addAll(rewritten);
+        }
+        return true;
+    }
+}
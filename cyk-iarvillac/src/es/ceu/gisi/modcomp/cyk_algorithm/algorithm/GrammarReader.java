@@ -0,0 +1,61 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Lectura de gramáticas escritas con una línea por no terminal en el formato
+ * de getProductions, como "S::=AB|BC", que comparten
+ * {@link CYKAlgorithm#loadGrammar(Reader)} y {@link AlgorithmFactory}. Las
+ * líneas en blanco se ignoran y cada alternativa, incluida la vacía, se
+ * entrega como una producción; qué producciones son válidas lo decide quien
+ * las recibe.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class GrammarReader {
+
+    /**
+     * Recibe las producciones en el orden en que aparecen.
+     */
+    interface ProductionHandler {
+
+        void production(char nonterminal, String production) throws CYKAlgorithmException;
+    }
+
+    private GrammarReader() {
+    }
+
+    /**
+     * @param reader Texto de la gramática, que no se cierra.
+     * @param handler Destino de cada producción.
+     * @throws IOException Si falla la lectura.
+     * @throws CYKAlgorithmException Si alguna línea no empieza por un no
+     * terminal seguido de "::=", o si lo lanza el destino.
+     */
+    static void read(Reader reader, ProductionHandler handler) throws IOException, CYKAlgorithmException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.length() < 4 || !line.startsWith("::=", 1) || !Character.isUpperCase(line.charAt(0))) {
+                throw new CYKAlgorithmException();
+            }
+            char nonterminal = line.charAt(0);
+            int from = 4;
+            while (from <= line.length()) {
+                int to = line.indexOf('|', from);
+                if (to < 0) {
+                    to = line.length();
+                }
+                handler.production(nonterminal, line.substring(from, to));
+                from = to + 1;
+            }
+        }
+    }
+}
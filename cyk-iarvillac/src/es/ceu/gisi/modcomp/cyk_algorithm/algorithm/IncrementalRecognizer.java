@@ -0,0 +1,120 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Reconocedor CYK para palabras que llegan símbolo a símbolo.
+ *
+ * La tabla se guarda por columnas: la columna e contiene, para cada posición
+ * inicial s &lt;= e, la máscara de los no terminales que generan la subcadena
+ * que va de s a e (ambas incluidas). Añadir un símbolo sólo calcula la nueva
+ * columna, que depende de las anteriores pero no al revés, con un coste de
+ * O(n^2) por símbolo en lugar de rehacer toda la tabla.
+ *
+ * No es seguro usar una misma instancia desde varios hilos; cada hilo debe
+ * crear la suya con {@link CompiledGrammar#newIncrementalRecognizer()}.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class IncrementalRecognizer {
+
+    private final CompiledGrammar grammar;
+    //columns[e] tiene e + 1 celdas; se conservan al recortar para reutilizarlas
+    private int[][] columns = new int[16][];
+    private int length;
+
+    IncrementalRecognizer(CompiledGrammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Añade un símbolo al final de la palabra y calcula la nueva columna.
+     *
+     * @param terminal El símbolo, por ejemplo 'a'.
+     * @throws CYKAlgorithmException Si el símbolo no es un terminal de la
+     * gramática. En ese caso la palabra no cambia.
+     */
+    public void append(char terminal) throws CYKAlgorithmException {
+        appendTerminal(grammar.terminalId(terminal));
+    }
+
+    /**
+     * Añade todos los símbolos de la cadena, como llamadas sucesivas a
+     * {@link #append(char)}.
+     *
+     * @throws CYKAlgorithmException Si algún símbolo no es un terminal de la
+     * gramática. Los símbolos anteriores a él sí quedan añadidos.
+     */
+    public void append(CharSequence terminals) throws CYKAlgorithmException {
+        for (int i = 0; i < terminals.length(); i++) {
+            append(terminals.charAt(i));
+        }
+    }
+
+    private void appendTerminal(int terminal) {
+        int end = length;
+        if (end == columns.length) {
+            columns = Arrays.copyOf(columns, 2 * end);
+        }
+        int[] column = columns[end];
+        if (column == null) {
+            column = new int[end + 1];
+            columns[end] = column;
+        }
+
+        column[end] = grammar.lexicalRule(terminal);
+        for (int start = end - 1; start >= 0; start--) {
+            int cell = 0;
+            for (int k = start; k < end; k++) {
+                cell |= grammar.combine(columns[k][start], column[k + 1]);
+            }
+            column[start] = cell;
+        }
+        length++;
+    }
+
+    /**
+     * @return TRUE si la palabra formada por los símbolos añadidos hasta ahora
+     * pertenece al lenguaje, FALSE en caso contrario.
+     */
+    public boolean isDerived() {
+        return length > 0 && (columns[length - 1][0] & (1 << grammar.startSymbol())) != 0;
+    }
+
+    /**
+     * @return Número de símbolos añadidos.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Descarta los últimos símbolos, dejando sólo los <code>length</code>
+     * primeros. Las columnas de ese prefijo no se recalculan.
+     *
+     * @param length Nueva longitud, entre 0 y la longitud actual.
+     */
+    public void truncate(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IndexOutOfBoundsException("Longitud fuera de rango: " + length);
+        }
+        this.length = length;
+    }
+
+    /**
+     * Vacía la palabra, conservando la memoria reservada.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * @param start Posición inicial de la subcadena (desde 0).
+     * @param end Posición final de la subcadena, incluida.
+     * @return Máscara de no terminales que generan la subcadena.
+     */
+    int get(int start, int end) {
+        return columns[end][start];
+    }
+}
@@ -0,0 +1,263 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Bosque compartido y empaquetado con todas las derivaciones de una palabra.
+ *
+ * Para cada celda (subcadena) y cada no terminal X de la celda que forma
+ * parte de alguna derivación completa de la palabra se guardan sus nodos
+ * empaquetados: una entrada por cada forma de obtener X con una regla X::=BC
+ * y un punto de corte. Cada entrada ocupa un único <code>long</code> con la
+ * longitud de la parte izquierda y los índices de X, B y C, y las entradas de
+ * una celda son contiguas. Los subárboles se comparten entre todas las
+ * derivaciones que los usan, de modo que la memoria es proporcional al
+ * trabajo del algoritmo CYK y nunca al número de árboles, que puede ser
+ * exponencial.
+ *
+ * Los árboles se construyen bajo demanda con {@link #firstTree()} o
+ * recorriendo {@link #trees()}.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class ParseForest {
+
+    private static final int SYMBOL_BITS = 5;
+    private static final int SYMBOL_MASK = (1 << SYMBOL_BITS) - 1;
+
+    private final CompiledGrammar grammar;
+    private final String word;
+    private final int[] offsets;
+    //Entradas de la celda c: packed[first[c]] ... packed[first[c] + count[c] - 1]
+    private final int[] first;
+    private final int[] count;
+    private final long[] packed;
+    private final boolean derived;
+
+    private ParseForest(CompiledGrammar grammar, String word, int[] offsets, int[] first, int[] count,
+            long[] packed, boolean derived) {
+        this.grammar = grammar;
+        this.word = word;
+        this.offsets = offsets;
+        this.first = first;
+        this.count = count;
+        this.packed = packed;
+        this.derived = derived;
+    }
+
+    /**
+     * Construye el bosque a partir de la tabla ya calculada, recorriéndola
+     * desde la celda de la palabra completa hacia las más cortas y guardando
+     * sólo los nodos alcanzables desde el axioma.
+     */
+    static ParseForest build(CompiledGrammar grammar, CYKChart chart, String word) {
+        int n = word.length();
+        int[] cells = chart.cells();
+        int[] offsets = Arrays.copyOf(chart.offsets(), n + 1);
+        int cellCount = n * (n + 1) / 2;
+        int[] reachable = new int[cellCount];
+        int[] first = new int[cellCount];
+        int[] count = new int[cellCount];
+        long[] packed = new long[16];
+        int size = 0;
+
+        boolean derived = n > 0 && (chart.get(0, n) & (1 << grammar.startSymbol())) != 0;
+        if (derived) {
+            reachable[offsets[n]] = 1 << grammar.startSymbol();
+        }
+        for (int length = n; length >= 2; length--) {
+            for (int start = 0; start + length <= n; start++) {
+                int cell = offsets[length] + start;
+                int needed = reachable[cell];
+                if (needed == 0) {
+                    continue;
+                }
+                first[cell] = size;
+                for (int k = 1; k < length; k++) {
+                    int leftCell = offsets[k] + start;
+                    int rightCell = offsets[length - k] + start + k;
+                    int lefts = cells[leftCell];
+                    int rights = cells[rightCell];
+                    if (lefts == 0 || rights == 0) {
+                        continue;
+                    }
+                    for (; lefts != 0; lefts &= lefts - 1) {
+                        int left = Integer.numberOfTrailingZeros(lefts);
+                        for (int others = rights; others != 0; others &= others - 1) {
+                            int right = Integer.numberOfTrailingZeros(others);
+                            int heads = grammar.binaryRule(left, right) & needed;
+                            if (heads == 0) {
+                                continue;
+                            }
+                            reachable[leftCell] |= 1 << left;
+                            reachable[rightCell] |= 1 << right;
+                            for (; heads != 0; heads &= heads - 1) {
+                                if (size == packed.length) {
+                                    packed = Arrays.copyOf(packed, 2 * size);
+                                }
+                                packed[size++] = pack(k, Integer.numberOfTrailingZeros(heads), left, right);
+                            }
+                        }
+                    }
+                }
+                count[cell] = size - first[cell];
+            }
+        }
+        return new ParseForest(grammar, word, offsets, first, count, Arrays.copyOf(packed, size), derived);
+    }
+
+    private static long pack(int split, int head, int left, int right) {
+        return ((long) split << (3 * SYMBOL_BITS)) | (head << (2 * SYMBOL_BITS)) | (left << SYMBOL_BITS) | right;
+    }
+
+    private static int split(long entry) {
+        return (int) (entry >>> (3 * SYMBOL_BITS));
+    }
+
+    private static int head(long entry) {
+        return (int) (entry >>> (2 * SYMBOL_BITS)) & SYMBOL_MASK;
+    }
+
+    private static int left(long entry) {
+        return (int) (entry >>> SYMBOL_BITS) & SYMBOL_MASK;
+    }
+
+    private static int right(long entry) {
+        return (int) entry & SYMBOL_MASK;
+    }
+
+    /**
+     * @return TRUE si la palabra pertenece al lenguaje, FALSE en caso
+     * contrario.
+     */
+    public boolean isDerived() {
+        return derived;
+    }
+
+    /**
+     * @return Número de nodos empaquetados del bosque.
+     */
+    public int packedNodeCount() {
+        return packed.length;
+    }
+
+    /**
+     * @return Un árbol de derivación de la palabra, o null si la palabra no
+     * pertenece al lenguaje.
+     */
+    public ParseTree firstTree() {
+        if (!derived) {
+            return null;
+        }
+        return firstTree(0, word.length(), grammar.startSymbol());
+    }
+
+    private ParseTree firstTree(int start, int length, int head) {
+        char symbol = grammar.nonTerminalSymbol(head);
+        if (length == 1) {
+            return new ParseTree(symbol, new ParseTree(word.charAt(start)));
+        }
+        int cell = offsets[length] + start;
+        for (int i = first[cell]; i < first[cell] + count[cell]; i++) {
+            long entry = packed[i];
+            if (head(entry) == head) {
+                int k = split(entry);
+                return new ParseTree(symbol, firstTree(start, k, left(entry)),
+                        firstTree(start + k, length - k, right(entry)));
+            }
+        }
+        throw new IllegalStateException("Nodo sin derivaciones en el bosque");
+    }
+
+    /**
+     * @return Todos los árboles de derivación de la palabra, que se
+     * construyen de uno en uno a medida que se recorren.
+     */
+    public Iterable<ParseTree> trees() {
+        return () -> derived
+                ? new TreeIterator(0, word.length(), grammar.startSymbol())
+                : new TreeIterator(0, 0, -1);
+    }
+
+    /**
+     * Recorre los árboles de un no terminal sobre una subcadena: para cada
+     * nodo empaquetado combina cada árbol de la parte izquierda con cada
+     * árbol de la parte derecha.
+     */
+    private final class TreeIterator implements Iterator<ParseTree> {
+
+        private final int start;
+        private final int length;
+        private final int head;
+        private int entry;
+        private final int end;
+        private Iterator<ParseTree> lefts;
+        private ParseTree currentLeft;
+        private Iterator<ParseTree> rights;
+        private int rightStart;
+        private int rightLength;
+        private int rightHead;
+        private ParseTree next;
+
+        TreeIterator(int start, int length, int head) {
+            this.start = start;
+            this.length = length;
+            this.head = head;
+            if (length == 1) {
+                next = new ParseTree(grammar.nonTerminalSymbol(head), new ParseTree(word.charAt(start)));
+                entry = 0;
+                end = 0;
+            } else if (length == 0) {
+                entry = 0;
+                end = 0;
+            } else {
+                int cell = offsets[length] + start;
+                entry = first[cell] - 1;
+                end = first[cell] + count[cell];
+                next = advance();
+            }
+        }
+
+        private ParseTree advance() {
+            while (true) {
+                if (rights != null && rights.hasNext()) {
+                    return new ParseTree(grammar.nonTerminalSymbol(head), currentLeft, rights.next());
+                }
+                if (lefts != null && lefts.hasNext()) {
+                    currentLeft = lefts.next();
+                    rights = new TreeIterator(rightStart, rightLength, rightHead);
+                    continue;
+                }
+                do {
+                    entry++;
+                } while (entry < end && head(packed[entry]) != head);
+                if (entry >= end) {
+                    return null;
+                }
+                int k = split(packed[entry]);
+                lefts = new TreeIterator(start, k, left(packed[entry]));
+                rights = null;
+                rightStart = start + k;
+                rightLength = length - k;
+                rightHead = right(packed[entry]);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ParseTree next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ParseTree result = next;
+            next = length > 1 ? advance() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Árbol de derivación de una palabra. Los nodos internos son no terminales
+ * con uno (producción A::=a) o dos hijos (producción A::=BC), y las hojas son
+ * los terminales de la palabra.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class ParseTree {
+
+    private final char symbol;
+    private final List<ParseTree> children;
+
+    ParseTree(char symbol, ParseTree... children) {
+        this.symbol = symbol;
+        this.children = Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    /**
+     * @return El símbolo del nodo: un no terminal en los nodos internos y un
+     * terminal en las hojas.
+     */
+    public char getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return Los hijos del nodo, vacío en las hojas.
+     */
+    public List<ParseTree> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return TRUE si el nodo es un terminal de la palabra.
+     */
+    public boolean isLeaf() {
+        return children.isEmpty();
+    }
+
+    /**
+     * @return El árbol en forma parentizada, por ejemplo "S(A(a) B(b))".
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        append(out);
+        return out.toString();
+    }
+
+    private void append(StringBuilder out) {
+        out.append(symbol);
+        if (!children.isEmpty()) {
+            out.append('(');
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                children.get(i).append(out);
+            }
+            out.append(')');
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ParseTree
+                && ((ParseTree) other).symbol == symbol
+                && ((ParseTree) other).children.equals(children);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * symbol + children.hashCode();
+    }
+}
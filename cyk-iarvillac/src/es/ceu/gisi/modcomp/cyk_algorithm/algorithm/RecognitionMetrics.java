@@ -0,0 +1,245 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Contadores del trabajo que hace el reconocedor, para diagnosticar palabras
+ * lentas. Se activan con {@link CYKAlgorithm#enableMetrics()}; mientras están
+ * desactivados isDerived no ejecuta ningún código de medición.
+ *
+ * Los contadores se pueden leer con {@link #snapshot()} o publicarse por JMX
+ * con {@link #registerMBean(String)}. Pueden actualizarse desde varios hilos a
+ * la vez.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class RecognitionMetrics implements RecognitionMetricsMBean {
+
+    /**
+     * Número de rangos de longitud de palabra del histograma: el rango i
+     * contiene las longitudes entre 2^i y 2^(i+1) - 1, y el último todas las
+     * mayores.
+     */
+    public static final int LENGTH_BUCKETS = 16;
+
+    /**
+     * Número de rangos de latencia del histograma: el rango i contiene los
+     * tiempos entre 2^i y 2^(i+1) - 1 microsegundos (el 0 incluye también los
+     * menores de un microsegundo), y el último todos los mayores.
+     */
+    public static final int LATENCY_BUCKETS = 32;
+
+    private final LongAdder recognitions = new LongAdder();
+    private final LongAdder cellsEvaluated = new LongAdder();
+    private final LongAdder splitPointsExamined = new LongAdder();
+    private final LongAdder ruleLookups = new LongAdder();
+    private final LongAdder nonEmptyCells = new LongAdder();
+    private final LongAdder chartBytesAllocated = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(LENGTH_BUCKETS * LATENCY_BUCKETS);
+
+    RecognitionMetrics() {
+    }
+
+    /**
+     * Registra una ejecución del reconocedor.
+     */
+    void record(int wordLength, long cells, long splitPoints, long lookups, long nonEmpty,
+            long bytesAllocated, long nanos) {
+        recognitions.increment();
+        cellsEvaluated.add(cells);
+        splitPointsExamined.add(splitPoints);
+        ruleLookups.add(lookups);
+        nonEmptyCells.add(nonEmpty);
+        chartBytesAllocated.add(bytesAllocated);
+        totalNanos.add(nanos);
+        latencies.incrementAndGet(lengthBucket(wordLength) * LATENCY_BUCKETS + latencyBucket(nanos));
+    }
+
+    static int lengthBucket(int wordLength) {
+        int bucket = 31 - Integer.numberOfLeadingZeros(Math.max(wordLength, 1));
+        return Math.min(bucket, LENGTH_BUCKETS - 1);
+    }
+
+    static int latencyBucket(long nanos) {
+        long micros = Math.max(nanos / 1000, 1);
+        int bucket = 63 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return Una copia de todos los contadores en este momento.
+     */
+    public Snapshot snapshot() {
+        long[][] histogram = new long[LENGTH_BUCKETS][LATENCY_BUCKETS];
+        for (int i = 0; i < LENGTH_BUCKETS; i++) {
+            for (int j = 0; j < LATENCY_BUCKETS; j++) {
+                histogram[i][j] = latencies.get(i * LATENCY_BUCKETS + j);
+            }
+        }
+        return new Snapshot(recognitions.sum(), cellsEvaluated.sum(), splitPointsExamined.sum(),
+                ruleLookups.sum(), nonEmptyCells.sum(), chartBytesAllocated.sum(), totalNanos.sum(),
+                histogram);
+    }
+
+    /**
+     * Pone todos los contadores a cero.
+     */
+    @Override
+    public void reset() {
+        recognitions.reset();
+        cellsEvaluated.reset();
+        splitPointsExamined.reset();
+        ruleLookups.reset();
+        nonEmptyCells.reset();
+        chartBytesAllocated.reset();
+        totalNanos.reset();
+        for (int i = 0; i < latencies.length(); i++) {
+            latencies.set(i, 0);
+        }
+    }
+
+    /**
+     * Publica los contadores en el servidor JMX de la plataforma.
+     *
+     * @param name Nombre JMX, por ejemplo
+     * "es.ceu.gisi.modcomp:type=RecognitionMetrics".
+     * @throws JMException Si el nombre no es válido o ya está registrado.
+     */
+    public void registerMBean(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    @Override
+    public long getRecognitions() {
+        return recognitions.sum();
+    }
+
+    @Override
+    public long getCellsEvaluated() {
+        return cellsEvaluated.sum();
+    }
+
+    @Override
+    public long getSplitPointsExamined() {
+        return splitPointsExamined.sum();
+    }
+
+    @Override
+    public long getRuleLookups() {
+        return ruleLookups.sum();
+    }
+
+    @Override
+    public long getNonEmptyCells() {
+        return nonEmptyCells.sum();
+    }
+
+    @Override
+    public long getChartBytesAllocated() {
+        return chartBytesAllocated.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long[][] getLatencyHistogram() {
+        return snapshot().getLatencyHistogram();
+    }
+
+    /**
+     * Copia inmutable de los contadores en un instante dado.
+     */
+    public static final class Snapshot {
+
+        private final long recognitions;
+        private final long cellsEvaluated;
+        private final long splitPointsExamined;
+        private final long ruleLookups;
+        private final long nonEmptyCells;
+        private final long chartBytesAllocated;
+        private final long totalNanos;
+        private final long[][] latencyHistogram;
+
+        Snapshot(long recognitions, long cellsEvaluated, long splitPointsExamined, long ruleLookups,
+                long nonEmptyCells, long chartBytesAllocated, long totalNanos, long[][] latencyHistogram) {
+            this.recognitions = recognitions;
+            this.cellsEvaluated = cellsEvaluated;
+            this.splitPointsExamined = splitPointsExamined;
+            this.ruleLookups = ruleLookups;
+            this.nonEmptyCells = nonEmptyCells;
+            this.chartBytesAllocated = chartBytesAllocated;
+            this.totalNanos = totalNanos;
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        /**
+         * @return Número de palabras reconocidas.
+         */
+        public long getRecognitions() {
+            return recognitions;
+        }
+
+        /**
+         * @return Número de celdas de la tabla calculadas.
+         */
+        public long getCellsEvaluated() {
+            return cellsEvaluated;
+        }
+
+        /**
+         * @return Número de puntos de corte recorridos al calcular las celdas.
+         */
+        public long getSplitPointsExamined() {
+            return splitPointsExamined;
+        }
+
+        /**
+         * @return Número de pares (B, C) buscados en la tabla de reglas.
+         */
+        public long getRuleLookups() {
+            return ruleLookups;
+        }
+
+        /**
+         * @return Número de celdas calculadas que contenían algún no terminal.
+         */
+        public long getNonEmptyCells() {
+            return nonEmptyCells;
+        }
+
+        /**
+         * @return Bytes reservados para tablas CYK nuevas.
+         */
+        public long getChartBytesAllocated() {
+            return chartBytesAllocated;
+        }
+
+        /**
+         * @return Tiempo total de reconocimiento, en nanosegundos.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return Histograma de latencias: la fila i corresponde al rango i de
+         * longitudes de palabra y la columna j al rango j de latencias (ver
+         * {@link #LENGTH_BUCKETS} y {@link #LATENCY_BUCKETS}).
+         */
+        public long[][] getLatencyHistogram() {
+            long[][] copy = new long[latencyHistogram.length][];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = latencyHistogram[i].clone();
+            }
+            return copy;
+        }
+    }
+}
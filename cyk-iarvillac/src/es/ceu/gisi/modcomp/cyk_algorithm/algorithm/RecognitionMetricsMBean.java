@@ -0,0 +1,27 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+/**
+ * Interfaz JMX de {@link RecognitionMetrics}.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public interface RecognitionMetricsMBean {
+
+    public long getRecognitions();
+
+    public long getCellsEvaluated();
+
+    public long getSplitPointsExamined();
+
+    public long getRuleLookups();
+
+    public long getNonEmptyCells();
+
+    public long getChartBytesAllocated();
+
+    public long getTotalNanos();
+
+    public long[][] getLatencyHistogram();
+
+    public void reset();
+}
@@ -0,0 +1,310 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Gramática en FNC con símbolos de nombre arbitrario y sin límite en su
+ * número, para gramáticas que no caben en las 26 letras de
+ * {@link CYKAlgorithm}.
+ *
+ * Los nombres se traducen a índices densos con una {@link SymbolTable} para
+ * los no terminales y otra para los terminales, y el algoritmo CYK trabaja
+ * sólo con índices: cada celda de la tabla es un mapa de bits de varios
+ * <code>long</code> y las reglas X::=BC se agrupan por B, de modo que para
+ * cada B presente en la celda izquierda sólo se miran los C con alguna regla.
+ *
+ * La forma compilada de las reglas se recalcula tras cada cambio en la
+ * gramática, la primera vez que se reconoce una palabra.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class SymbolGrammar {
+
+    //Los índices de las reglas se empaquetan en un long con 21 bits por símbolo
+    private static final int ID_BITS = 21;
+    private static final int MAX_SYMBOLS = 1 << ID_BITS;
+
+    private final SymbolTable nonTerminals = new SymbolTable();
+    private final SymbolTable terminals = new SymbolTable();
+    private int startSymbol = -1;
+    //Reglas X::=BC como (X, B, C) y X::=t como (X, t), empaquetadas
+    private final Set<Long> binaryKeys = new HashSet<>();
+    private final Set<Long> lexicalKeys = new HashSet<>();
+    private final List<int[]> binary = new ArrayList<>();
+    private final List<int[]> lexical = new ArrayList<>();
+
+    //Forma compilada, null si la gramática ha cambiado desde la última vez
+    private Compiled compiled;
+
+    /**
+     * @param name Nombre del no terminal.
+     * @return Su índice.
+     * @throws CYKAlgorithmException Si el nombre está vacío, ya es un
+     * terminal o no caben más símbolos.
+     */
+    public int addNonTerminal(String name) throws CYKAlgorithmException {
+        if (name.isEmpty() || terminals.id(name) >= 0 || nonTerminals.size() == MAX_SYMBOLS) {
+            throw new CYKAlgorithmException();
+        }
+        compiled = null;
+        return nonTerminals.intern(name);
+    }
+
+    /**
+     * @param name Nombre del terminal.
+     * @return Su índice.
+     * @throws CYKAlgorithmException Si el nombre está vacío, ya es un no
+     * terminal o no caben más símbolos.
+     */
+    public int addTerminal(String name) throws CYKAlgorithmException {
+        if (name.isEmpty() || nonTerminals.id(name) >= 0 || terminals.size() == MAX_SYMBOLS) {
+            throw new CYKAlgorithmException();
+        }
+        compiled = null;
+        return terminals.intern(name);
+    }
+
+    /**
+     * @param name Nombre del axioma, que debe ser un no terminal ya añadido.
+     * @throws CYKAlgorithmException Si no es un no terminal de la gramática.
+     */
+    public void setStartSymbol(String name) throws CYKAlgorithmException {
+        startSymbol = nonTerminal(name);
+        compiled = null;
+    }
+
+    /**
+     * Añade la producción head::=left right.
+     *
+     * @throws CYKAlgorithmException Si algún símbolo no es un no terminal de la
+     * gramática o la producción ya existe.
+     */
+    public void addProduction(String head, String left, String right) throws CYKAlgorithmException {
+        addBinaryRule(nonTerminal(head), nonTerminal(left), nonTerminal(right));
+    }
+
+    /**
+     * Añade la producción head::=terminal.
+     *
+     * @throws CYKAlgorithmException Si head no es un no terminal, terminal no
+     * es un terminal de la gramática o la producción ya existe.
+     */
+    public void addProduction(String head, String terminal) throws CYKAlgorithmException {
+        int id = terminals.id(terminal);
+        if (id < 0) {
+            throw new CYKAlgorithmException();
+        }
+        addLexicalRule(nonTerminal(head), id);
+    }
+
+    /**
+     * Igual que {@link #addProduction(String, String, String)} con índices.
+     */
+    public void addBinaryRule(int head, int left, int right) throws CYKAlgorithmException {
+        checkNonTerminal(head);
+        checkNonTerminal(left);
+        checkNonTerminal(right);
+        if (!binaryKeys.add(((long) head << (2 * ID_BITS)) | ((long) left << ID_BITS) | right)) {
+            throw new CYKAlgorithmException();
+        }
+        compiled = null;
+        binary.add(new int[]{head, left, right});
+    }
+
+    /**
+     * Igual que {@link #addProduction(String, String)} con índices.
+     */
+    public void addLexicalRule(int head, int terminal) throws CYKAlgorithmException {
+        checkNonTerminal(head);
+        if (terminal < 0 || terminal >= terminals.size()) {
+            throw new CYKAlgorithmException();
+        }
+        if (!lexicalKeys.add(((long) head << ID_BITS) | terminal)) {
+            throw new CYKAlgorithmException();
+        }
+        compiled = null;
+        lexical.add(new int[]{head, terminal});
+    }
+
+    private int nonTerminal(String name) throws CYKAlgorithmException {
+        int id = nonTerminals.id(name);
+        if (id < 0) {
+            throw new CYKAlgorithmException();
+        }
+        return id;
+    }
+
+    private void checkNonTerminal(int id) throws CYKAlgorithmException {
+        if (id < 0 || id >= nonTerminals.size()) {
+            throw new CYKAlgorithmException();
+        }
+    }
+
+    /**
+     * @return Tabla de los no terminales.
+     */
+    public SymbolTable nonTerminals() {
+        return nonTerminals;
+    }
+
+    /**
+     * @return Tabla de los terminales.
+     */
+    public SymbolTable terminals() {
+        return terminals;
+    }
+
+    /**
+     * @return Número de producciones de la gramática.
+     */
+    public int productionCount() {
+        return binary.size() + lexical.size();
+    }
+
+    /**
+     * Método que indica si una palabra, dada como lista de nombres de
+     * terminales, pertenece al lenguaje generado por la gramática.
+     *
+     * @param word Los terminales de la palabra.
+     * @return TRUE si la palabra pertenece, FALSE en caso contrario.
+     * @throws CYKAlgorithmException Si algún símbolo no es un terminal de la
+     * gramática o la gramática carece de axioma.
+     */
+    public boolean isDerived(List<String> word) throws CYKAlgorithmException {
+        int[] tokens = new int[word.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = terminals.id(word.get(i));
+            if (tokens[i] < 0) {
+                throw new CYKAlgorithmException();
+            }
+        }
+        return isDerived(tokens);
+    }
+
+    /**
+     * Igual que {@link #isDerived(List)} con los índices de los terminales.
+     */
+    public boolean isDerived(int[] tokens) throws CYKAlgorithmException {
+        if (startSymbol < 0) {
+            throw new CYKAlgorithmException();
+        }
+        if (compiled == null) {
+            compiled = new Compiled();
+        }
+        return compiled.isDerived(tokens);
+    }
+
+    /**
+     * Reglas agrupadas para el algoritmo. Los conjuntos de no terminales son
+     * mapas de bits de <code>words</code> longs.
+     */
+    private final class Compiled {
+
+        private final int words;
+        private final int start;
+        //lexicalRules[t] = mapa de bits de los X tales que X::=t
+        private final long[][] lexicalRules;
+        //Para cada B: los C con alguna regla X::=BC y el mapa de bits de esos X
+        private final int[][] rightSymbols;
+        private final long[][][] heads;
+
+        Compiled() {
+            int count = nonTerminals.size();
+            this.words = (count + 63) >>> 6;
+            this.start = startSymbol;
+            this.lexicalRules = new long[terminals.size()][words];
+            for (int[] rule : lexical) {
+                lexicalRules[rule[1]][rule[0] >>> 6] |= 1L << rule[0];
+            }
+
+            int[] rightCount = new int[count];
+            int[][] rights = new int[count][];
+            long[][][] heads = new long[count][][];
+            //Índice de C entre los de B, o -1; se vuelve a poner a -1 tras cada B
+            int[] position = new int[count];
+            Arrays.fill(position, -1);
+            List<List<int[]>> byLeft = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                byLeft.add(new ArrayList<>());
+            }
+            for (int[] rule : binary) {
+                byLeft.get(rule[1]).add(rule);
+            }
+            for (int b = 0; b < count; b++) {
+                List<int[]> rules = byLeft.get(b);
+                int[] cs = new int[rules.size()];
+                long[][] masks = new long[rules.size()][];
+                for (int[] rule : rules) {
+                    int c = rule[2];
+                    if (position[c] < 0) {
+                        position[c] = rightCount[b];
+                        cs[rightCount[b]] = c;
+                        masks[rightCount[b]] = new long[words];
+                        rightCount[b]++;
+                    }
+                    masks[position[c]][rule[0] >>> 6] |= 1L << rule[0];
+                }
+                for (int i = 0; i < rightCount[b]; i++) {
+                    position[cs[i]] = -1;
+                }
+                rights[b] = Arrays.copyOf(cs, rightCount[b]);
+                heads[b] = Arrays.copyOf(masks, rightCount[b]);
+            }
+            this.rightSymbols = rights;
+            this.heads = heads;
+        }
+
+        boolean isDerived(int[] tokens) throws CYKAlgorithmException {
+            int n = tokens.length;
+            if (n == 0) {
+                return false;
+            }
+            long cellCount = (long) n * (n + 1) / 2;
+            if (cellCount * words > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Palabra demasiado larga para la tabla CYK: " + n);
+            }
+            int[] offsets = new int[n + 1];
+            for (int length = 1; length <= n; length++) {
+                offsets[length] = (length - 1) * n - (length - 1) * (length - 2) / 2;
+            }
+            long[] chart = new long[(int) cellCount * words];
+            for (int i = 0; i < n; i++) {
+                if (tokens[i] < 0 || tokens[i] >= lexicalRules.length) {
+                    throw new CYKAlgorithmException();
+                }
+                System.arraycopy(lexicalRules[tokens[i]], 0, chart, i * words, words);
+            }
+
+            for (int length = 2; length <= n; length++) {
+                for (int i = 0; i + length <= n; i++) {
+                    int cell = (offsets[length] + i) * words;
+                    for (int k = 1; k < length; k++) {
+                        int left = (offsets[k] + i) * words;
+                        int right = (offsets[length - k] + i + k) * words;
+                        for (int w = 0; w < words; w++) {
+                            for (long bits = chart[left + w]; bits != 0; bits &= bits - 1) {
+                                int b = (w << 6) + Long.numberOfTrailingZeros(bits);
+                                int[] cs = rightSymbols[b];
+                                for (int r = 0; r < cs.length; r++) {
+                                    int c = cs[r];
+                                    if ((chart[right + (c >>> 6)] & (1L << c)) != 0) {
+                                        long[] mask = heads[b][r];
+                                        for (int x = 0; x < words; x++) {
+                                            chart[cell + x] |= mask[x];
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return (chart[offsets[n] * words + (start >>> 6)] & (1L << start)) != 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabla de símbolos que asigna a cada nombre un índice entero denso (0, 1,
+ * 2...) en el orden en que se añade, para poder representar los conjuntos de
+ * símbolos como mapas de bits.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class SymbolTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @param name Nombre del símbolo.
+     * @return El índice del símbolo, que se añade si todavía no estaba.
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * @param name Nombre del símbolo.
+     * @return El índice del símbolo, o -1 si no está en la tabla.
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id Índice del símbolo.
+     * @return El nombre del símbolo.
+     */
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return Número de símbolos de la tabla.
+     */
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,279 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Reconocedor que reduce el algoritmo CYK a productos de matrices booleanas
+ * (algoritmo de Valiant, en la formulación de Okhotin).
+ *
+ * Las posiciones entre símbolos de la palabra son 0..n, y la celda T(i, j)
+ * contiene los no terminales que generan la subcadena entre las posiciones i
+ * y j (la celda (i, j - i) de {@link CYKChart}). La tabla se divide
+ * recursivamente en bloques cuadrados cuyo tamaño es potencia de dos; las
+ * aportaciones de todos los puntos de corte que quedan entre dos bloques se
+ * calculan de una vez como productos de matrices de bits empaquetadas en
+ * <code>long[]</code>, una por cada par (B, C) con alguna regla X::=BC. Los
+ * bloques pequeños se terminan directamente celda a celda.
+ *
+ * En lugar de guardar los pares (B, C) encontrados para cada celda se guarda
+ * ya la máscara de los X que producen, que es lo único que hace falta para
+ * obtener la celda.
+ *
+ * Cada instancia sirve para una única palabra y no debe compartirse entre
+ * hilos.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+final class ValiantRecognizer {
+
+    //Tamaño de bloque a partir del cual se deja de multiplicar matrices
+    private static final int BASE_BLOCK = 16;
+
+    private final int[][] binaryRules;
+    private final int nonTerminalCount;
+    private final CYKChart chart;
+    private final int[] cells;
+    private final int[] offsets;
+    //Máscaras de los X obtenidos por puntos de corte ya tratados, por celda
+    private final int[] pending;
+    private final int n;
+    //Máscaras de no terminales que aparecen a la izquierda / derecha de alguna regla
+    private final int leftSymbols;
+    private final int rightSymbols;
+
+    /**
+     * @param binaryRules Tabla de reglas binarias de la gramática compilada.
+     * @param chart Tabla con las celdas de longitud 1 ya rellenas y el resto
+     * vacías.
+     */
+    ValiantRecognizer(int[][] binaryRules, CYKChart chart) {
+        this.binaryRules = binaryRules;
+        this.nonTerminalCount = binaryRules.length;
+        this.chart = chart;
+        this.cells = chart.cells();
+        this.offsets = chart.offsets();
+        this.n = chart.size();
+        this.pending = new int[n * (n + 1) / 2];
+        int left = 0;
+        int right = 0;
+        for (int b = 0; b < nonTerminalCount; b++) {
+            for (int c = 0; c < nonTerminalCount; c++) {
+                if (binaryRules[b][c] != 0) {
+                    left |= 1 << b;
+                    right |= 1 << c;
+                }
+            }
+        }
+        this.leftSymbols = left;
+        this.rightSymbols = right;
+    }
+
+    /**
+     * Completa todas las celdas de la tabla.
+     */
+    void fill() {
+        int size = 1;
+        while (size < n + 1) {
+            size <<= 1;
+        }
+        compute(0, size);
+    }
+
+    /**
+     * Calcula todas las celdas T(i, j) con l &lt;= i &lt; j &lt; m.
+     */
+    private void compute(int l, int m) {
+        if (l >= n) {
+            return;
+        }
+        if (m - l <= BASE_BLOCK) {
+            completeDirectly(l, m, l, m);
+            return;
+        }
+        int middle = (l + m) >>> 1;
+        compute(l, middle);
+        compute(middle, m);
+        complete(l, middle, middle, m);
+    }
+
+    /**
+     * Calcula las celdas del bloque de filas [l, m) y columnas [l2, m2),
+     * suponiendo conocidas las celdas de los dos triángulos [l, m) y [l2, m2)
+     * y ya acumuladas en <code>pending</code> las aportaciones de los puntos
+     * de corte k con m &lt;= k &lt; l2.
+     */
+    private void complete(int l, int m, int l2, int m2) {
+        if (l >= n || l2 > n) {
+            return;
+        }
+        if (m - l <= BASE_BLOCK) {
+            completeDirectly(l, m, l2, m2);
+            return;
+        }
+        int middle = (l + m) >>> 1;
+        int middle2 = (l2 + m2) >>> 1;
+
+        complete(middle, m, l2, middle2);
+        multiply(l, middle, middle, m, l2, middle2);
+        complete(l, middle, l2, middle2);
+        multiply(middle, m, l2, middle2, middle2, m2);
+        complete(middle, m, middle2, m2);
+        multiply(l, middle, middle, m, middle2, m2);
+        multiply(l, middle, l2, middle2, middle2, m2);
+        complete(l, middle, middle2, m2);
+    }
+
+    /**
+     * Versión celda a celda de {@link #complete}: recorre las filas de abajo
+     * arriba y las columnas de izquierda a derecha, de modo que cada celda
+     * sólo usa celdas ya terminadas. Si el bloque está sobre la diagonal
+     * (l == l2) calcula el triángulo completo.
+     */
+    private void completeDirectly(int l, int m, int l2, int m2) {
+        int lastRow = Math.min(m, n) - 1;
+        int lastColumn = Math.min(m2 - 1, n);
+        for (int i = lastRow; i >= l; i--) {
+            for (int j = Math.max(l2, i + 2); j <= lastColumn; j++) {
+                int cell = pending[index(i, j)];
+                for (int k = i + 1; k < m && k < j; k++) {
+                    cell |= combine(get(i, k), get(k, j));
+                }
+                for (int k = Math.max(l2, i + 1); k < j; k++) {
+                    if (k >= m) {
+                        cell |= combine(get(i, k), get(k, j));
+                    }
+                }
+                cells[index(i, j)] = cell;
+            }
+        }
+    }
+
+    /**
+     * Acumula en <code>pending</code>, para las celdas de filas [rowFrom,
+     * rowTo) y columnas [columnFrom, columnTo), lo que producen todos los
+     * puntos de corte k en [kFrom, kTo).
+     */
+    private void multiply(int rowFrom, int rowTo, int kFrom, int kTo, int columnFrom, int columnTo) {
+        rowTo = Math.min(rowTo, n + 1);
+        kTo = Math.min(kTo, n + 1);
+        columnTo = Math.min(columnTo, n + 1);
+        int rows = rowTo - rowFrom;
+        int ks = kTo - kFrom;
+        int columns = columnTo - columnFrom;
+        if (rows <= 0 || ks <= 0 || columns <= 0) {
+            return;
+        }
+        int kWords = (ks + 63) >>> 6;
+        int columnWords = (columns + 63) >>> 6;
+
+        //left[B][r] = puntos de corte k tales que B está en T(rowFrom + r, kFrom + k)
+        long[][][] left = new long[nonTerminalCount][][];
+        int presentLeft = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int k = 0; k < ks; k++) {
+                int mask = get(rowFrom + r, kFrom + k) & leftSymbols;
+                while (mask != 0) {
+                    int b = Integer.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    if (left[b] == null) {
+                        left[b] = new long[rows][kWords];
+                        presentLeft |= 1 << b;
+                    }
+                    left[b][r][k >>> 6] |= 1L << k;
+                }
+            }
+        }
+        if (presentLeft == 0) {
+            return;
+        }
+        //right[C][k] = columnas c tales que C está en T(kFrom + k, columnFrom + c)
+        long[][][] right = new long[nonTerminalCount][][];
+        int presentRight = 0;
+        for (int k = 0; k < ks; k++) {
+            for (int c = 0; c < columns; c++) {
+                int mask = get(kFrom + k, columnFrom + c) & rightSymbols;
+                while (mask != 0) {
+                    int symbol = Integer.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    if (right[symbol] == null) {
+                        right[symbol] = new long[ks][columnWords];
+                        presentRight |= 1 << symbol;
+                    }
+                    right[symbol][k][c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        if (presentRight == 0) {
+            return;
+        }
+
+        long[] product = new long[columnWords];
+        for (int lefts = presentLeft; lefts != 0; lefts &= lefts - 1) {
+            int b = Integer.numberOfTrailingZeros(lefts);
+            for (int rights = presentRight; rights != 0; rights &= rights - 1) {
+                int c = Integer.numberOfTrailingZeros(rights);
+                int heads = binaryRules[b][c];
+                if (heads == 0) {
+                    continue;
+                }
+                long[][] a = left[b];
+                long[][] z = right[c];
+                for (int r = 0; r < rows; r++) {
+                    long[] row = a[r];
+                    boolean any = false;
+                    Arrays.fill(product, 0L);
+                    for (int w = 0; w < kWords; w++) {
+                        long bits = row[w];
+                        while (bits != 0) {
+                            long[] other = z[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                            bits &= bits - 1;
+                            for (int x = 0; x < columnWords; x++) {
+                                product[x] |= other[x];
+                            }
+                            any = true;
+                        }
+                    }
+                    if (!any) {
+                        continue;
+                    }
+                    for (int x = 0; x < columnWords; x++) {
+                        long bits = product[x];
+                        while (bits != 0) {
+                            int column = columnFrom + (x << 6) + Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            pending[index(rowFrom + r, column)] |= heads;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int combine(int first, int second) {
+        if (first == 0 || second == 0) {
+            return 0;
+        }
+        int cell = 0;
+        while (first != 0) {
+            int[] rulesForFirst = binaryRules[Integer.numberOfTrailingZeros(first)];
+            first &= first - 1;
+            int rest = second;
+            while (rest != 0) {
+                cell |= rulesForFirst[Integer.numberOfTrailingZeros(rest)];
+                rest &= rest - 1;
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * @return T(i, j), o vacío si j no es mayor que i.
+     */
+    private int get(int i, int j) {
+        return j > i ? cells[index(i, j)] : 0;
+    }
+
+    private int index(int i, int j) {
+        return offsets[j - i] + i;
+    }
+}
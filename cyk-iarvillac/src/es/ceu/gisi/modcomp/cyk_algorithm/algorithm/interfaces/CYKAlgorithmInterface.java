@@ -81,6 +81,21 @@ public interface CYKAlgorithmInterface {
      */
     public String algorithmStateToString(String word) throws CYKAlgorithmException;
 
+    /**
+     * Establece la longitud de palabra a partir de la cual isDerived calcula la
+     * tabla mediante productos de matrices booleanas (algoritmo de Valiant) en
+     * lugar del bucle CYK clásico. Ambos métodos dan el mismo resultado. Por
+     * defecto se rechaza, porque no todas las implementaciones tienen ese
+     * algoritmo.
+     *
+     * @param wordLength Longitud mínima, Integer.MAX_VALUE para no usarlo nunca.
+     * @throws CYKAlgorithmException Si la longitud no es positiva o si la
+     * implementación no usa el algoritmo de Valiant.
+     */
+    public default void setValiantThreshold(int wordLength) throws CYKAlgorithmException {
+        throw new CYKAlgorithmException();
+    }
+
     /**
      * Elimina todos los elementos que se han introducido hasta el momento en la
      * gramática (elementos terminales, no terminales, axioma y producciones),
@@ -0,0 +1,331 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.cli;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Programa que comprueba todas las palabras de un fichero, una por línea,
+ * contra una gramática.
+ *
+ * Uso: <code>java -jar cyk-iarvillac.jar gramática corpus [salida]</code>
+ *
+ * La gramática puede estar en texto, con una línea por no terminal, o
+ * guardada en binario con {@link GrammarCompiler}. El corpus se proyecta en
+ * memoria por trozos que terminan en un salto de línea y cada trozo se
+ * procesa en un hilo, leyendo las palabras directamente de la proyección,
+ * sin crear un String por línea. Si se indica fichero de salida,
+ * se escribe en él una línea por palabra, en el mismo orden: "1" si pertenece
+ * al lenguaje, "0" si no pertenece y "-" si contiene símbolos que no son
+ * terminales o no se ha podido comprobar, por ejemplo por ser más larga que
+ * {@value #DEFAULT_MAX_WORD_LENGTH} símbolos. Al terminar se muestra el
+ * recuento.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class CorpusChecker {
+
+    /**
+     * Tamaño aproximado de cada trozo del corpus, en bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    /**
+     * Longitud máxima por defecto de las palabras que se comprueban. La tabla
+     * CYK de una palabra de n símbolos ocupa unos 2n² bytes por hilo.
+     */
+    public static final int DEFAULT_MAX_WORD_LENGTH = 4096;
+
+    private final CompiledGrammar grammar;
+    private final int chunkSize;
+    private final int maxWordLength;
+
+    /**
+     * @param grammar Gramática con la que se comprueban las palabras.
+     * @param chunkSize Tamaño aproximado de cada trozo, en bytes.
+     */
+    public CorpusChecker(CompiledGrammar grammar, int chunkSize) {
+        this(grammar, chunkSize, DEFAULT_MAX_WORD_LENGTH);
+    }
+
+    /**
+     * @param grammar Gramática con la que se comprueban las palabras.
+     * @param chunkSize Tamaño aproximado de cada trozo, en bytes.
+     * @param maxWordLength Longitud máxima de las palabras que se comprueban;
+     * las más largas cuentan como no válidas.
+     */
+    public CorpusChecker(CompiledGrammar grammar, int chunkSize, int maxWordLength) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Tamaño de trozo no válido: " + chunkSize);
+        }
+        if (maxWordLength <= 0) {
+            throw new IllegalArgumentException("Longitud máxima de palabra no válida: " + maxWordLength);
+        }
+        this.grammar = grammar;
+        this.chunkSize = chunkSize;
+        this.maxWordLength = maxWordLength;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Uso: java -jar cyk-iarvillac.jar gramática corpus [salida]");
+            System.exit(2);
+        }
+        CompiledGrammar grammar;
+        try {
+            grammar = GrammarCompiler.load(Paths.get(args[0]));
+        } catch (CYKAlgorithmException e) {
+            System.err.println("La gramática de " + args[0] + " no es válida");
+            System.exit(1);
+            return;
+        }
+        Path output = args.length == 3 ? Paths.get(args[2]) : null;
+        Summary summary = new CorpusChecker(grammar, DEFAULT_CHUNK_SIZE).check(Paths.get(args[1]), output);
+        System.out.println(summary);
+    }
+
+    /**
+     * Comprueba todas las palabras del corpus.
+     *
+     * @param corpus Fichero con una palabra por línea, en ASCII o UTF-8.
+     * @param output Fichero donde escribir el resultado de cada palabra, o
+     * null para obtener sólo el recuento.
+     * @return El recuento de palabras aceptadas, rechazadas y no válidas.
+     * @throws IOException Si falla la lectura del corpus o la escritura de la
+     * salida.
+     */
+    public Summary check(Path corpus, Path output) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ);
+                OutputStream out = output == null ? null : Files.newOutputStream(output)) {
+            List<Future<Chunk>> chunks = new ArrayList<>();
+            for (long[] bounds : split(channel)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[0], bounds[1] - bounds[0]);
+                chunks.add(pool.submit(() -> process(buffer, out != null)));
+            }
+            Summary summary = new Summary();
+            for (Future<Chunk> future : chunks) {
+                Chunk chunk = future.get();
+                summary.add(chunk);
+                if (out != null) {
+                    out.write(chunk.results, 0, chunk.resultLength);
+                }
+            }
+            return summary;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Divide el fichero en trozos de unos <code>chunkSize</code> bytes, cada
+     * uno terminado justo después de un salto de línea (salvo el último).
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        List<long[]> bounds = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            //Avanza hasta el siguiente salto de línea para no partir palabras
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += Math.max(read, 0);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Línea demasiado larga en la posición " + start);
+            }
+            bounds.add(new long[]{start, end});
+            start = end;
+        }
+        return bounds;
+    }
+
+    private Chunk process(ByteBuffer buffer, boolean keepResults) {
+        Chunk chunk = new Chunk(keepResults ? 64 : 0);
+        AsciiSlice word = new AsciiSlice(buffer);
+        int limit = buffer.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int length = end - start;
+            if (length > 0 && buffer.get(end - 1) == '\r') {
+                length--;
+            }
+            word.set(start, length);
+            byte result;
+            try {
+                if (length > maxWordLength) {
+                    chunk.invalid++;
+                    result = '-';
+                } else if (grammar.isDerived(word, 0, length)) {
+                    chunk.accepted++;
+                    result = '1';
+                } else {
+                    chunk.rejected++;
+                    result = '0';
+                }
+            } catch (CYKAlgorithmException | RuntimeException e) {
+                //Una palabra que no se puede comprobar no detiene el resto del corpus
+                chunk.invalid++;
+                result = '-';
+            }
+            if (keepResults) {
+                chunk.append(result);
+            }
+            start = end + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Vista de un trozo del búfer como secuencia de caracteres de un byte,
+     * que se reutiliza para todas las palabras de un trozo. Los bytes que no
+     * son ASCII dan caracteres que no son terminales, así que esas palabras
+     * cuentan como no válidas.
+     */
+    private static final class AsciiSlice implements CharSequence {
+
+        private final ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        AsciiSlice(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void set(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * Resultados de un trozo: recuento y, si se piden, una línea por palabra.
+     */
+    private static final class Chunk {
+
+        private long accepted;
+        private long rejected;
+        private long invalid;
+        private byte[] results;
+        private int resultLength;
+
+        Chunk(int capacity) {
+            this.results = new byte[capacity];
+        }
+
+        void append(byte result) {
+            if (resultLength + 2 > results.length) {
+                byte[] grown = new byte[2 * results.length + 2];
+                System.arraycopy(results, 0, grown, 0, resultLength);
+                results = grown;
+            }
+            results[resultLength++] = result;
+            results[resultLength++] = '\n';
+        }
+    }
+
+    /**
+     * Recuento de palabras de un corpus.
+     */
+    public static final class Summary {
+
+        private long accepted;
+        private long rejected;
+        private long invalid;
+
+        private void add(Chunk chunk) {
+            accepted += chunk.accepted;
+            rejected += chunk.rejected;
+            invalid += chunk.invalid;
+        }
+
+        /**
+         * @return Número de palabras que pertenecen al lenguaje.
+         */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return Número de palabras que no pertenecen al lenguaje.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return Número de palabras con símbolos que no son terminales o que
+         * no se han podido comprobar.
+         */
+        public long getInvalid() {
+            return invalid;
+        }
+
+        @Override
+        public String toString() {
+            return "Palabras: " + (accepted + rejected + invalid) + "\tAceptadas: " + accepted
+                    + "\tRechazadas: " + rejected + "\tNo válidas: " + invalid;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.cli;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Programa que guarda una gramática en el formato binario de
+ * {@link CompiledGrammar#writeTo(java.io.OutputStream)}, para que los
+ * programas que la usan arranquen sin volver a leer y validar cada
+ * producción.
+ *
+ * Uso: <code>java -cp cyk-iarvillac.jar
+ * es.ceu.gisi.modcomp.cyk_algorithm.cli.GrammarCompiler gramática
+ * salida</code>
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class GrammarCompiler {
+
+    private GrammarCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: java -cp cyk-iarvillac.jar " + GrammarCompiler.class.getName()
+                    + " gramática salida");
+            System.exit(2);
+        }
+        CompiledGrammar grammar;
+        try {
+            grammar = load(Paths.get(args[0]));
+        } catch (CYKAlgorithmException e) {
+            System.err.println("La gramática de " + args[0] + " no es válida");
+            System.exit(1);
+            return;
+        }
+        grammar.save(Paths.get(args[1]));
+    }
+
+    /**
+     * Carga una gramática guardada en formato binario o, si el fichero no
+     * empieza por {@link CompiledGrammar#MAGIC}, escrita en texto con una
+     * línea por no terminal (ver {@link CYKAlgorithm#loadGrammar(Path)}).
+     *
+     * @param file Fichero con la gramática.
+     * @return La gramática compilada.
+     * @throws IOException Si falla la lectura o el fichero binario está
+     * dañado.
+     * @throws CYKAlgorithmException Si la gramática en texto no es válida.
+     */
+    static CompiledGrammar load(Path file) throws IOException, CYKAlgorithmException {
+        byte[] header = new byte[4];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        if (read == header.length && ByteBuffer.wrap(header).getInt() == CompiledGrammar.MAGIC) {
+            return CompiledGrammar.load(file);
+        }
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        cyk.loadGrammar(file);
+        return cyk.compile();
+    }
+}
@@ -0,0 +1,461 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.cli;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Servidor TCP local que comprueba palabras contra una gramática compilada.
+ *
+ * Uso: <code>java -cp cyk-iarvillac.jar
+ * es.ceu.gisi.modcomp.cyk_algorithm.cli.RecognitionServer gramática
+ * [puerto]</code>
+ *
+ * Sólo escucha en la interfaz local. El cliente envía una palabra por línea
+ * y recibe, en el mismo orden, una línea por palabra: "1" si pertenece al
+ * lenguaje, "0" si no pertenece, "-" si contiene símbolos que no son
+ * terminales, tiene más de {@value #MAX_WORD_LENGTH} símbolos o no se ha
+ * podido comprobar, y {@value #BUSY} si la cola del servidor está llena y la
+ * palabra no se ha comprobado, para que el cliente la reintente más tarde.
+ * Un cliente puede enviar varias palabras seguidas sin esperar respuesta.
+ *
+ * Cada conexión se atiende en un hilo virtual si la JVM los tiene (Java 21 o
+ * posterior) y en un pool de hilos normal si no. Las conexiones no
+ * comprueban las palabras: las dejan en una cola acotada, de la que un único
+ * hilo las va sacando por lotes de hasta <code>maxBatch</code> palabras y
+ * las comprueba todas juntas con la misma gramática, reutilizando su tabla y
+ * repartiendo los lotes grandes entre los procesadores con
+ * {@link CompiledGrammar#isDerivedAll(List)}.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public final class RecognitionServer implements Closeable {
+
+    /**
+     * Puerto por defecto.
+     */
+    public static final int DEFAULT_PORT = 7171;
+
+    /**
+     * Número máximo de palabras esperando a comprobarse por defecto.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /**
+     * Número máximo de palabras de cada lote por defecto.
+     */
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    /**
+     * Respuesta a una palabra que no se ha comprobado por estar la cola llena.
+     */
+    public static final String BUSY = "BUSY";
+
+    /**
+     * Longitud máxima de las palabras. Del resto de una línea más larga sólo
+     * se lee hasta el salto de línea, sin guardarlo, y se responde "-".
+     */
+    public static final int MAX_WORD_LENGTH = 4096;
+
+    //Resultados de una petición
+    private static final int PENDING = 0;
+    private static final int ACCEPTED = 1;
+    private static final int REJECTED = 2;
+    private static final int INVALID = 3;
+    private static final int REFUSED = 4;
+    private static final String[] REPLIES = {null, "1", "0", "-", BUSY};
+
+    private final CompiledGrammar grammar;
+    private final int maxBatch;
+    private final ServerSocket socket;
+    private final ArrayBlockingQueue<Request> queue;
+    private final ExecutorService connections;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private final Thread batcher;
+    private volatile boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    private RecognitionServer(CompiledGrammar grammar, int port, int queueCapacity, int maxBatch)
+            throws IOException {
+        if (queueCapacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Capacidad de cola o tamaño de lote no válidos");
+        }
+        this.grammar = grammar;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.socket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.connections = connectionExecutor();
+        this.batcher = new Thread(this::processBatches, "cyk-batcher");
+        this.batcher.setDaemon(true);
+        this.acceptor = new Thread(this::acceptConnections, "cyk-acceptor");
+    }
+
+    /**
+     * Crea el servidor y empieza a aceptar conexiones.
+     *
+     * @param grammar Gramática con la que se comprueban las palabras.
+     * @param port Puerto local, o 0 para uno libre cualquiera (ver
+     * {@link #getPort()}).
+     * @param queueCapacity Número máximo de palabras esperando a comprobarse;
+     * a las que lleguen con la cola llena se responde {@value #BUSY}.
+     * @param maxBatch Número máximo de palabras que se comprueban juntas.
+     * @return El servidor en marcha.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public static RecognitionServer start(CompiledGrammar grammar, int port, int queueCapacity, int maxBatch)
+            throws IOException {
+        RecognitionServer server = new RecognitionServer(grammar, port, queueCapacity, maxBatch);
+        server.batcher.start();
+        server.acceptor.start();
+        return server;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Uso: java -cp cyk-iarvillac.jar " + RecognitionServer.class.getName()
+                    + " gramática [puerto]");
+            System.exit(2);
+        }
+        CompiledGrammar grammar;
+        try {
+            grammar = GrammarCompiler.load(Paths.get(args[0]));
+        } catch (CYKAlgorithmException e) {
+            System.err.println("La gramática de " + args[0] + " no es válida");
+            System.exit(1);
+            return;
+        }
+        int port = args.length == 2 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        RecognitionServer server = start(grammar, port, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Escuchando en " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort());
+        server.acceptor.join();
+    }
+
+    /**
+     * @return Puerto en el que escucha el servidor.
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return Número de palabras recibidas, incluidas las rechazadas por
+     * tener la cola llena.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Número de lotes comprobados.
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return Número de palabras a las que se ha respondido {@value #BUSY}.
+     */
+    public long getRefused() {
+        return refused.sum();
+    }
+
+    /**
+     * Deja de aceptar conexiones, cierra las abiertas y responde
+     * {@value #BUSY} a las palabras que quedaban en la cola.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //Ya estaba cerrado
+        }
+        batcher.interrupt();
+        try {
+            batcher.join();
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request request = queue.poll(); request != null; request = queue.poll()) {
+            request.complete(REFUSED);
+        }
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+        connections.shutdownNow();
+    }
+
+    /**
+     * Un hilo virtual por tarea en Java 21 o posterior. Se busca por
+     * reflexión para que el proyecto siga compilando para Java 17.
+     */
+    private static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "cyk-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket client;
+            try {
+                client = socket.accept();
+            } catch (IOException e) {
+                //close() ha cerrado el socket
+                break;
+            }
+            clients.add(client);
+            try {
+                connections.execute(() -> serve(client));
+            } catch (RejectedExecutionException e) {
+                clients.remove(client);
+                closeQuietly(client);
+            }
+        }
+    }
+
+    /**
+     * Atiende una conexión: lee todas las palabras completas que ya han
+     * llegado (hasta <code>maxBatch</code>), las deja en la cola y responde
+     * cuando están todas comprobadas. Sólo se bloquea esperando datos después
+     * de haber respondido a todas las palabras leídas.
+     */
+    private void serve(Socket client) {
+        try (InputStream input = client.getInputStream();
+                Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            client.setTcpNoDelay(true);
+            LineReader in = new LineReader(input);
+            Request[] pending = new Request[maxBatch];
+            String line = in.readLine(true);
+            while (line != null) {
+                int count = 0;
+                pending[count++] = submit(line);
+                while (count < pending.length && (line = in.readLine(false)) != null) {
+                    pending[count++] = submit(line);
+                }
+                for (int i = 0; i < count; i++) {
+                    out.write(REPLIES[pending[i].await()]);
+                    out.write('\n');
+                    pending[i] = null;
+                }
+                out.flush();
+                line = in.readLine(true);
+            }
+        } catch (IOException e) {
+            //El cliente ha cerrado la conexión o el servidor se está cerrando
+        } finally {
+            clients.remove(client);
+            closeQuietly(client);
+        }
+    }
+
+    private Request submit(String word) {
+        requests.increment();
+        Request request = new Request(word, Thread.currentThread());
+        if (word.length() > MAX_WORD_LENGTH) {
+            request.result = INVALID;
+        } else if (closed || !queue.offer(request)) {
+            refused.increment();
+            request.result = REFUSED;
+        }
+        return request;
+    }
+
+    private void processBatches() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        List<String> words = new ArrayList<>(maxBatch);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            for (Request request : batch) {
+                words.add(request.word);
+            }
+            try {
+                check(batch, words);
+            } catch (Throwable e) {
+                //Si falla el lote entero (por ejemplo sin memoria) el hilo sigue
+                //con el siguiente y las palabras sin resultado se pueden reintentar
+                for (Request request : batch) {
+                    if (request.result == PENDING) {
+                        refused.increment();
+                        request.complete(REFUSED);
+                    }
+                }
+            }
+            batches.increment();
+            batch.clear();
+            words.clear();
+        }
+    }
+
+    private void check(List<Request> batch, List<String> words) {
+        if (batch.size() > 1) {
+            try {
+                BitSet derived = grammar.isDerivedAll(words);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).complete(derived.get(i) ? ACCEPTED : REJECTED);
+                }
+                return;
+            } catch (CYKAlgorithmException | RuntimeException e) {
+                //Alguna palabra no es válida: se comprueban de una en una
+            }
+        }
+        for (Request request : batch) {
+            int result;
+            try {
+                result = grammar.isDerived(request.word) ? ACCEPTED : REJECTED;
+            } catch (CYKAlgorithmException | RuntimeException e) {
+                result = INVALID;
+            }
+            request.complete(result);
+        }
+    }
+
+    private static void closeQuietly(Socket client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            //Nada que hacer
+        }
+    }
+
+    /**
+     * Lector de líneas de una conexión. A diferencia de
+     * {@link java.io.BufferedReader#readLine()}, permite pedir sólo las
+     * líneas que ya han llegado completas, sin bloquearse por una línea a
+     * medias, y guarda como mucho {@value #MAX_WORD_LENGTH} + 1 caracteres de
+     * cada línea, para que un cliente no pueda agotar la memoria con una línea
+     * sin fin. Los bytes que no son ASCII dan caracteres que no son
+     * terminales.
+     */
+    private static final class LineReader {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private boolean ended;
+        //Parte ya leída de la línea actual
+        private final StringBuilder line = new StringBuilder();
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @param wait Si se puede esperar a que lleguen más datos.
+         * @return La siguiente línea sin el salto de línea; null al final de
+         * la entrada o, si no se puede esperar, cuando no ha llegado ninguna
+         * línea completa.
+         */
+        String readLine(boolean wait) throws IOException {
+            while (true) {
+                while (position < limit) {
+                    byte b = buffer[position++];
+                    if (b == '\n') {
+                        return take();
+                    }
+                    if (line.length() <= MAX_WORD_LENGTH) {
+                        line.append((char) (b & 0xff));
+                    }
+                }
+                if (ended || (!wait && in.available() == 0)) {
+                    return null;
+                }
+                int read = in.read(buffer);
+                if (read < 0) {
+                    ended = true;
+                    //La última línea puede no terminar en salto de línea
+                    return line.length() > 0 ? take() : null;
+                }
+                position = 0;
+                limit = read;
+            }
+        }
+
+        private String take() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                length--;
+            }
+            String word = line.substring(0, length);
+            line.setLength(0);
+            return word;
+        }
+    }
+
+    /**
+     * Palabra pendiente de comprobar. El hilo de la conexión se bloquea con
+     * LockSupport hasta que el hilo de lotes deja el resultado, lo que no
+     * retiene el hilo de plataforma cuando la conexión usa un hilo virtual.
+     */
+    private static final class Request {
+
+        private final String word;
+        private final Thread waiter;
+        private volatile int result = PENDING;
+
+        Request(String word, Thread waiter) {
+            this.word = word;
+            this.waiter = waiter;
+        }
+
+        void complete(int result) {
+            this.result = result;
+            LockSupport.unpark(waiter);
+        }
+
+        int await() throws IOException {
+            while (result == PENDING) {
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("Servidor cerrado");
+                }
+            }
+            return result;
+        }
+    }
+}
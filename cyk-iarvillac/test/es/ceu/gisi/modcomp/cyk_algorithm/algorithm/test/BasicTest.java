@@ -1,12 +1,22 @@
 package es.ceu.gisi.modcomp.cyk_algorithm.algorithm.test;
 
 import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKResult;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.DerivationCache;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.RecognitionMetrics;
 import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -538,4 +548,298 @@ public class BasicTest {
         assertFalse(cyk.isDerived("bbaba"));
         assertTrue(cyk.isDerived("bbabab"));
     }
+
+    @Test
+    public void comprobarDerivacionGramaticaLetrasExtremas() throws CYKAlgorithmException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('Z');
+        cyk.addNonTerminal('A');
+        cyk.addNonTerminal('Y');
+        
+        cyk.addTerminal('z');
+        cyk.addTerminal('a');
+        
+        cyk.setStartSymbol('Z');
+        
+        cyk.addProduction('Z', "AY");
+        cyk.addProduction('Z', "ZZ");
+        
+        cyk.addProduction('A', "a");
+        
+        cyk.addProduction('Y', "z");
+        
+        assertTrue(cyk.isDerived("azaz"));
+        assertFalse(cyk.isDerived("azza"));
+        assertFalse(cyk.isDerived("a"));
+    }
+
+    @Test
+    public void comprobarTablaAlgoritmo() throws CYKAlgorithmException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        cyk.addNonTerminal('B');
+        
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AB");
+        cyk.addProduction('A', "a");
+        cyk.addProduction('B', "b");
+        cyk.addProduction('S', "b");
+        
+        assertEquals("[A]\t[S]\t[]\t\n[B, S]\t[]\t\n[A]\t\n", cyk.algorithmStateToString("aba"));
+        assertEquals("[A]\t[S]\t\n[B, S]\t\n", cyk.algorithmStateToString("ab"));
+    }
+
+    @Test
+    public void comprobarResultadoConTabla() throws CYKAlgorithmException, IOException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        cyk.addNonTerminal('B');
+        
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AB");
+        cyk.addProduction('A', "a");
+        cyk.addProduction('B', "b");
+        cyk.addProduction('S', "b");
+        
+        CYKResult result = cyk.parse("ab");
+        StringWriter table = new StringWriter();
+        result.writeTable(table);
+        
+        assertTrue(result.isDerived());
+        assertEquals(cyk.algorithmStateToString("ab"), table.toString());
+        assertEquals(cyk.algorithmStateToString("ab"), result.toString());
+        assertFalse(cyk.parse("aba").isDerived());
+    }
+
+    @Test
+    public void comprobarGramaticaCompiladaInmutable() throws CYKAlgorithmException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AA");
+        cyk.addProduction('A', "a");
+        
+        CompiledGrammar compiled = cyk.compile();
+        assertSame(compiled, cyk.compile());
+        
+        cyk.addProduction('A', "b");
+        
+        assertFalse(compiled.isDerived("ab"));
+        assertTrue(cyk.isDerived("ab"));
+        assertTrue(compiled.isDerived("aa"));
+    }
+    
+    @Test
+    public void comprobarCambiosFallidosNoDescartanCompilada() throws CYKAlgorithmException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        cyk.addTerminal('a');
+        cyk.setStartSymbol('S');
+        cyk.addProduction('S', "AA");
+        cyk.addProduction('A', "a");
+        
+        CompiledGrammar compiled = cyk.compile();
+        String[] invalid = {"addNonTerminal", "addTerminal", "setStartSymbol", "addProduction", "duplicada"};
+        for(String call : invalid){
+            try{
+                switch(call){
+                    case "addNonTerminal": cyk.addNonTerminal('A'); break;
+                    case "addTerminal": cyk.addTerminal('1'); break;
+                    case "setStartSymbol": cyk.setStartSymbol('X'); break;
+                    case "addProduction": cyk.addProduction('S', "Ab"); break;
+                    default: cyk.addProduction('A', "a");
+                }
+                fail(call);
+            }catch(CYKAlgorithmException e){
+                //La gramática no ha cambiado
+            }
+        }
+        cyk.setStartSymbol('S');
+        
+        assertSame(compiled, cyk.compile());
+    }
+    
+    @Test
+    public void comprobarCompilarSinAxioma() throws CYKAlgorithmException{
+        thrown.expect(CYKAlgorithmException.class);
+        
+        cyk = new CYKAlgorithm();
+        cyk.addNonTerminal('S');
+        cyk.addTerminal('a');
+        cyk.addProduction('S', "a");
+        
+        cyk.compile();
+    }
+
+    @Test
+    public void comprobarCacheDerivaciones() throws CYKAlgorithmException{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AA");
+        cyk.addProduction('A', "a");
+        
+        DerivationCache cache = cyk.enableCache(2, 1 << 20);
+        
+        assertTrue(cyk.isDerived("aa"));
+        assertTrue(cyk.isDerived("aa"));
+        assertFalse(cyk.isDerived("ab"));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        
+        cyk.addProduction('A', "b");
+        
+        assertTrue(cyk.isDerived("ab"));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+        
+        cyk.isDerived("ba");
+        cyk.isDerived("bb");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void comprobarMetricas() throws Exception{
+        
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        
+        cyk.addTerminal('a');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AA");
+        cyk.addProduction('A', "a");
+        
+        assertTrue(cyk.isDerived("aa"));
+        assertEquals(null, cyk.getMetrics());
+        
+        RecognitionMetrics metrics = cyk.enableMetrics();
+        assertTrue(cyk.isDerived("aa"));
+        assertFalse(cyk.isDerived("aaa"));
+        
+        RecognitionMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getRecognitions());
+        assertEquals(3 + 6, snapshot.getCellsEvaluated());
+        assertEquals(1 + 4, snapshot.getSplitPointsExamined());
+        assertEquals(1 + 4, snapshot.getRuleLookups());
+        assertEquals(3 + 5, snapshot.getNonEmptyCells());
+        
+        long histogramTotal = 0;
+        for (long[] row : snapshot.getLatencyHistogram()) {
+            for (long count : row) {
+                histogramTotal += count;
+            }
+        }
+        assertEquals(2, histogramTotal);
+        
+        ObjectName name = new ObjectName("es.ceu.gisi.modcomp:type=RecognitionMetrics,name=BasicTest");
+        metrics.registerMBean(name.toString());
+        try {
+            assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Recognitions"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void comprobarOptimizarGramatica() throws CYKAlgorithmException{
+        cyk = new CYKAlgorithm();
+        
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        cyk.addNonTerminal('B');
+        cyk.addNonTerminal('C');
+        cyk.addNonTerminal('D');
+        cyk.addNonTerminal('W');
+        cyk.addNonTerminal('Z');
+        
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+        
+        cyk.setStartSymbol('S');
+        
+        cyk.addProduction('S', "AB");
+        cyk.addProduction('S', "CD");
+        cyk.addProduction('S', "ZA");
+        cyk.addProduction('A', "a");
+        cyk.addProduction('B', "b");
+        cyk.addProduction('C', "a");
+        cyk.addProduction('D', "b");
+        cyk.addProduction('W', "a");
+        cyk.addProduction('Z', "ZZ");
+        
+        //Z es improductivo, W inaccesible y C, D son iguales que A, B
+        assertEquals(4, cyk.optimize());
+        assertEquals("S::=AB", cyk.getProductions('S'));
+        assertEquals("", cyk.getProductions('C'));
+        assertEquals("", cyk.getProductions('Z'));
+        assertEquals(3, cyk.compile().nonTerminalCount());
+        assertTrue(cyk.isDerived("ab"));
+        assertFalse(cyk.isDerived("ba"));
+        assertEquals(0, cyk.optimize());
+    }
+
+    @Test
+    public void comprobarCargarGramatica() throws CYKAlgorithmException, IOException{
+        cyk = new CYKAlgorithm();
+        cyk.addNonTerminal('Q');
+        
+        cyk.loadGrammar(new StringReader("S::=AB|BC\nA::=BA|a\n\nB::=CC|b\nC::=AB|a\n"));
+        
+        assertEquals("S::=AB|BC", cyk.getProductions('S'));
+        assertEquals("A::=BA|a", cyk.getProductions('A'));
+        assertEquals("B::=CC|b", cyk.getProductions('B'));
+        assertEquals("C::=AB|a", cyk.getProductions('C'));
+        assertEquals(4, cyk.compile().nonTerminalCount());
+        assertEquals('S', cyk.compile().nonTerminalSymbol(cyk.compile().startSymbol()));
+        assertTrue(cyk.isDerived("baaba"));
+        assertFalse(cyk.isDerived("baba"));
+    }
+
+    @Test
+    public void comprobarCargarGramaticaNoValida() throws CYKAlgorithmException, IOException{
+        thrown.expect(CYKAlgorithmException.class);
+        cyk = new CYKAlgorithm();
+        
+        cyk.loadGrammar(new StringReader("S::=AB|a\nA::=ABC\n"));
+    }
 }
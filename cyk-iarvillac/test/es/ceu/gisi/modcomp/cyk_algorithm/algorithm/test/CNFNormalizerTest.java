@@ -0,0 +1,99 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CNFNormalizer;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Clase que testea la conversión de gramáticas a FNC.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class CNFNormalizerTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private static boolean parentesisEquilibrados(String word) {
+        int depth = 0;
+        for (int i = 0; i < word.length(); i++) {
+            depth += word.charAt(i) == 'a' ? 1 : -1;
+            if (depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    @Test
+    public void comprobarProduccionesVaciasYLargas() throws CYKAlgorithmException {
+        //Paréntesis equilibrados, con a como paréntesis de apertura y b de cierre
+        CNFNormalizer normalizer = new CNFNormalizer('S');
+        normalizer.addProduction('S', "SS");
+        normalizer.addProduction('S', "aSb");
+        normalizer.addProduction('S', "");
+        CYKAlgorithm cyk = normalizer.normalize();
+
+        for (int length = 1; length <= 10; length++) {
+            for (int bits = 0; bits < 1 << length; bits++) {
+                StringBuilder word = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    word.append((bits >> i & 1) == 0 ? 'a' : 'b');
+                }
+                assertEquals(parentesisEquilibrados(word.toString()), cyk.isDerived(word.toString()));
+            }
+        }
+        assertFalse(cyk.isDerived(""));
+    }
+
+    @Test
+    public void comprobarProduccionesUnitarias() throws CYKAlgorithmException {
+        CNFNormalizer normalizer = new CNFNormalizer('S');
+        normalizer.addProduction('S', "A");
+        normalizer.addProduction('A', "B");
+        normalizer.addProduction('A', "aB");
+        normalizer.addProduction('B', "b");
+        normalizer.addProduction('B', "c");
+        CYKAlgorithm cyk = normalizer.normalize();
+
+        assertTrue(cyk.isDerived("b"));
+        assertTrue(cyk.isDerived("c"));
+        assertTrue(cyk.isDerived("ac"));
+        assertFalse(cyk.isDerived("a"));
+        assertFalse(cyk.isDerived("bc"));
+    }
+
+    @Test
+    public void comprobarSufijosCompartidos() throws CYKAlgorithmException {
+        CNFNormalizer normalizer = new CNFNormalizer('S');
+        normalizer.addProduction('S', "aBCD");
+        normalizer.addProduction('S', "bBCD");
+        normalizer.addProduction('S', "cBCD");
+        normalizer.addProduction('B', "b");
+        normalizer.addProduction('C', "c");
+        normalizer.addProduction('D', "d");
+        CYKAlgorithm cyk = normalizer.normalize();
+
+        //S, B, C, D, el no terminal de a (los de b y c son B y C) y los de "CD" y "BCD"
+        assertEquals(7, cyk.compile().nonTerminalCount());
+        assertTrue(cyk.isDerived("abcd"));
+        assertTrue(cyk.isDerived("cbcd"));
+        assertFalse(cyk.isDerived("dbcd"));
+    }
+
+    @Test
+    public void comprobarLetrasAgotadas() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        CNFNormalizer normalizer = new CNFNormalizer('S');
+        for (char terminal = 'a'; terminal <= 'z'; terminal++) {
+            normalizer.addProduction('S', "S" + terminal + "S");
+        }
+        normalizer.normalize();
+    }
+}
@@ -0,0 +1,448 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.IncrementalRecognizer;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.ParseForest;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.ParseTree;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Clase que testea los modos de reconocimiento de la gramática compilada,
+ * comparando sus resultados con los de isDerived palabra a palabra.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class CompiledGrammarTest {
+
+    private CYKAlgorithm cyk;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Gramática de las palabras con el mismo número de aes que de bes.
+     */
+    private CYKAlgorithm gramaticaEquilibrada() throws CYKAlgorithmException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+
+        cyk.addNonTerminal('S');
+        cyk.addNonTerminal('A');
+        cyk.addNonTerminal('B');
+        cyk.addNonTerminal('X');
+        cyk.addNonTerminal('Y');
+
+        cyk.addTerminal('a');
+        cyk.addTerminal('b');
+
+        cyk.setStartSymbol('S');
+
+        cyk.addProduction('S', "AB");
+        cyk.addProduction('S', "BA");
+        cyk.addProduction('S', "SS");
+        cyk.addProduction('S', "AY");
+        cyk.addProduction('S', "BX");
+        cyk.addProduction('X', "SA");
+        cyk.addProduction('Y', "SB");
+        cyk.addProduction('A', "a");
+        cyk.addProduction('B', "b");
+
+        return cyk;
+    }
+
+    private static boolean equilibrada(String word) {
+        int balance = 0;
+        for (int i = 0; i < word.length(); i++) {
+            balance += word.charAt(i) == 'a' ? 1 : -1;
+        }
+        return balance == 0 && !word.isEmpty();
+    }
+
+    private static List<String> palabrasAleatorias(int count, int maxLength, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            char[] word = new char[1 + random.nextInt(maxLength)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = random.nextBoolean() ? 'a' : 'b';
+            }
+            words.add(new String(word));
+        }
+        return words;
+    }
+
+    @Test
+    public void comprobarLoteEnOrden() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        List<String> words = palabrasAleatorias(1000, 12, 1);
+
+        BitSet expected = new BitSet();
+        for (int i = 0; i < words.size(); i++) {
+            if (equilibrada(words.get(i))) {
+                expected.set(i);
+            }
+        }
+
+        assertEquals(expected, cyk.isDerivedAll(words));
+        assertEquals(expected, cyk.isDerivedAll(words.stream()));
+    }
+
+    @Test
+    public void comprobarLoteConPrefijosComunes() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        List<String> words = new ArrayList<>();
+        for (String suffix : palabrasAleatorias(300, 10, 7)) {
+            words.add("abbabaab" + suffix);
+            words.add(suffix);
+        }
+        words.add("");
+        words.add("abbabaab");
+
+        BitSet expected = new BitSet();
+        for (int i = 0; i < words.size(); i++) {
+            if (equilibrada(words.get(i))) {
+                expected.set(i);
+            }
+        }
+
+        assertEquals(expected, cyk.isDerivedAllSharingPrefixes(words));
+        assertEquals(expected, cyk.isDerivedAll(words));
+    }
+
+    @Test
+    public void comprobarLoteConPalabraNoValida() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        cyk = gramaticaEquilibrada();
+        List<String> words = palabrasAleatorias(500, 8, 2);
+        words.set(321, "abc");
+
+        cyk.isDerivedAll(words);
+    }
+
+    @Test
+    public void comprobarLoteVacio() throws CYKAlgorithmException {
+        CompiledGrammar compiled = gramaticaEquilibrada().compile();
+
+        assertEquals(new BitSet(), compiled.isDerivedAll(Arrays.asList()));
+    }
+
+    @Test
+    public void comprobarDiagonalesEnParalelo() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+
+        for (String word : palabrasAleatorias(6, 700, 3)) {
+            assertEquals(equilibrada(word), cyk.isDerivedParallel(word));
+            assertEquals(cyk.isDerived(word), cyk.isDerivedParallel(word));
+        }
+        char[] word = new char[600];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = i % 3 == 0 ? 'b' : 'a';
+        }
+        assertEquals(false, cyk.isDerivedParallel(new String(word)));
+        word[1] = 'b';
+        word[4] = 'b';
+        assertEquals(equilibrada(new String(word)), cyk.isDerivedParallel(new String(word)));
+    }
+
+    @Test
+    public void comprobarValiantIgualQueCYK() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        CompiledGrammar compiled = cyk.compile();
+
+        for (String word : palabrasAleatorias(40, 300, 4)) {
+            assertEquals(equilibrada(word), compiled.isDerivedValiant(word));
+            assertEquals(compiled.isDerived(word), compiled.isDerivedValiant(word));
+        }
+        assertEquals(true, compiled.isDerivedValiant("ab"));
+        assertEquals(false, compiled.isDerivedValiant("a"));
+    }
+
+    @Test
+    public void comprobarDescendenteIgualQueCYK() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+
+        for (String word : palabrasAleatorias(200, 60, 9)) {
+            assertEquals(equilibrada(word), cyk.isDerivedGoalDirected(word));
+        }
+        assertEquals(false, cyk.isDerivedGoalDirected(""));
+        assertEquals(false, cyk.isDerivedGoalDirected("a"));
+        char[] word = new char[400];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = i < word.length / 2 ? 'a' : 'b';
+        }
+        assertEquals(true, cyk.isDerivedGoalDirected(new String(word)));
+    }
+
+    @Test
+    public void comprobarVectoresDeBitsIgualQueCYK() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        CompiledGrammar compiled = cyk.compile();
+
+        for (String word : palabrasAleatorias(60, 300, 23)) {
+            assertEquals(compiled.isDerived(word), compiled.isDerivedBitParallel(word));
+        }
+        //Palabras que cruzan varias veces el límite de 64 posiciones
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            word.insert(0, 'a').append('b');
+            if (i % 37 == 0) {
+                assertEquals(true, cyk.isDerivedBitParallel(word.toString()));
+                assertEquals(false, cyk.isDerivedBitParallel(word + "a"));
+            }
+        }
+        assertEquals(true, cyk.isDerivedBitParallel(word.toString()));
+        assertEquals(false, cyk.isDerivedBitParallel(""));
+    }
+
+    @Test
+    public void comprobarFormatoBinario() throws CYKAlgorithmException, IOException {
+        cyk = gramaticaEquilibrada();
+        cyk.setValiantThreshold(50);
+        CompiledGrammar compiled = cyk.compile();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiled.writeTo(out);
+        //El búfer puede tener datos delante y detrás de la gramática
+        ByteBuffer buffer = ByteBuffer.allocate(out.size() + 10);
+        buffer.put(new byte[3]).put(out.toByteArray()).put(new byte[7]).flip().position(3);
+        CompiledGrammar loaded = CompiledGrammar.read(buffer);
+
+        assertEquals(3 + out.size(), buffer.position());
+        assertEquals(compiled.nonTerminalCount(), loaded.nonTerminalCount());
+        assertEquals(compiled.terminalSymbol(1), loaded.terminalSymbol(1));
+        for (String word : palabrasAleatorias(200, 80, 25)) {
+            assertEquals(compiled.isDerived(word), loaded.isDerived(word));
+        }
+        assertEquals(compiled.algorithmStateToString("abba"), loaded.algorithmStateToString("abba"));
+
+        Path file = Files.createTempFile("gramatica", ".cykg");
+        try {
+            compiled.save(file);
+            assertEquals(true, CompiledGrammar.load(file).isDerived("aabbab"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void comprobarFormatoBinarioNoValido() throws CYKAlgorithmException, IOException {
+        cyk = gramaticaEquilibrada();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cyk.compile().writeTo(out);
+        byte[] bytes = out.toByteArray();
+
+        thrown.expect(IOException.class);
+        CompiledGrammar.read(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    }
+
+    @Test
+    public void comprobarFormatoBinarioCorrupto() throws CYKAlgorithmException, IOException {
+        cyk = gramaticaEquilibrada();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cyk.compile().writeTo(out);
+        byte[] bytes = out.toByteArray();
+        //Cabecera de 13 bytes seguida de los no terminales S, A, B, X, Y
+        int[] positions = {13 + 1, bytes.length - 4, bytes.length - 1};
+        byte[] values = {'S', 0x40, 0x40};
+
+        for (int i = 0; i < positions.length; i++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[positions[i]] = values[i];
+            try {
+                CompiledGrammar.read(ByteBuffer.wrap(corrupt));
+                fail("Se ha aceptado el byte " + positions[i]);
+            } catch (IOException e) {
+                //Esperado: no terminal repetido o regla con un no terminal inexistente
+            }
+        }
+        CompiledGrammar.read(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void comprobarEntradasSinCopiar() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        CompiledGrammar compiled = cyk.compile();
+        CharBuffer buffer = CharBuffer.wrap("xxabbaxxaab".toCharArray());
+
+        assertEquals(true, compiled.isDerived(buffer, 2, 4));
+        assertEquals(false, compiled.isDerived(buffer, 8, 3));
+        assertEquals(true, cyk.isDerived(new StringBuilder("ba")));
+        assertEquals(true, cyk.isDerived(buffer, 4, 2));
+        cyk.enableCache(10, 1000);
+        assertEquals(true, cyk.isDerived(buffer, 4, 2));
+
+        //Los terminales se numeran en el orden en que se añadieron: a = 0, b = 1
+        assertEquals('b', compiled.terminalSymbol(1));
+        assertEquals(true, compiled.isDerived(new int[]{0, 1, 1, 0}));
+        assertEquals(false, compiled.isDerived(new int[]{0, 1, 1, 0}, 1, 2));
+        assertEquals(true, cyk.isDerived(new int[]{1, 0}));
+        for (String word : palabrasAleatorias(50, 20, 11)) {
+            int[] tokens = new int[word.length()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = word.charAt(i) - 'a';
+            }
+            assertEquals(equilibrada(word), compiled.isDerived(tokens));
+        }
+    }
+
+    @Test
+    public void comprobarIndiceTerminalNoValido() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        cyk = gramaticaEquilibrada();
+
+        cyk.isDerived(new int[]{0, 2});
+    }
+
+    @Test
+    public void comprobarUmbralValiant() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        cyk.setValiantThreshold(1);
+
+        for (String word : palabrasAleatorias(40, 100, 5)) {
+            assertEquals(equilibrada(word), cyk.isDerived(word));
+        }
+    }
+
+    @Test
+    public void comprobarUmbralValiantNoValido() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        cyk = gramaticaEquilibrada();
+        cyk.setValiantThreshold(0);
+    }
+
+    @Test
+    public void comprobarReconocedorIncremental() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        IncrementalRecognizer recognizer = cyk.newIncrementalRecognizer();
+        String word = palabrasAleatorias(1, 200, 6).get(0) + "abbaab";
+
+        assertEquals(false, recognizer.isDerived());
+        for (int i = 0; i < word.length(); i++) {
+            recognizer.append(word.charAt(i));
+            assertEquals(equilibrada(word.substring(0, i + 1)), recognizer.isDerived());
+        }
+
+        recognizer.truncate(word.length() - 3);
+        assertEquals(equilibrada(word.substring(0, word.length() - 3)), recognizer.isDerived());
+        recognizer.append("bba");
+        assertEquals(equilibrada(word.substring(0, word.length() - 3) + "bba"), recognizer.isDerived());
+    }
+
+    @Test
+    public void comprobarReconocedorIncrementalSimboloNoValido() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        IncrementalRecognizer recognizer = cyk.newIncrementalRecognizer();
+        recognizer.append("ab");
+
+        try {
+            recognizer.append('c');
+            fail("Debería haber lanzado CYKAlgorithmException");
+        } catch (CYKAlgorithmException e) {
+            assertEquals(2, recognizer.length());
+            assertEquals(true, recognizer.isDerived());
+        }
+    }
+
+    @Test
+    public void comprobarBosqueDerivaciones() throws CYKAlgorithmException {
+        cyk = new CYKAlgorithm();
+        cyk.addNonTerminal('S');
+        cyk.addTerminal('a');
+        cyk.setStartSymbol('S');
+        cyk.addProduction('S', "SS");
+        cyk.addProduction('S', "a");
+
+        ParseForest forest = cyk.parseForest("aaa");
+        assertEquals(true, forest.isDerived());
+        assertEquals("S(S(a) S(S(a) S(a)))", forest.firstTree().toString());
+
+        //Las derivaciones de a^5 son tantas como árboles binarios con 5 hojas (Catalan(4) = 14)
+        forest = cyk.parseForest("aaaaa");
+        Set<ParseTree> trees = new HashSet<>();
+        for (ParseTree tree : forest.trees()) {
+            trees.add(tree);
+        }
+        assertEquals(14, trees.size());
+        assertEquals(20, forest.packedNodeCount());
+    }
+
+    @Test
+    public void comprobarBosquePalabraNoDerivada() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+        ParseForest forest = cyk.parseForest("aab");
+
+        assertEquals(false, forest.isDerived());
+        assertEquals(null, forest.firstTree());
+        assertEquals(false, forest.trees().iterator().hasNext());
+        assertEquals(0, forest.packedNodeCount());
+
+        forest = cyk.parseForest("abab");
+        int count = 0;
+        for (ParseTree tree : forest.trees()) {
+            assertEquals('S', tree.getSymbol());
+            count++;
+        }
+        assertEquals(true, count > 0);
+        assertEquals(forest.firstTree(), forest.trees().iterator().next());
+    }
+
+    @Test
+    public void comprobarCuentaDerivaciones() throws CYKAlgorithmException {
+        cyk = new CYKAlgorithm();
+        cyk.addNonTerminal('S');
+        cyk.addTerminal('a');
+        cyk.setStartSymbol('S');
+        cyk.addProduction('S', "SS");
+        cyk.addProduction('S', "a");
+
+        //a^n tiene Catalan(n - 1) derivaciones
+        assertEquals(1, cyk.countDerivations("a"));
+        assertEquals(14, cyk.countDerivations("aaaaa"));
+        assertEquals(16796, cyk.countDerivations("aaaaaaaaaaa"));
+        assertEquals(16796 % 1000, cyk.countDerivations("aaaaaaaaaaa", 1000));
+
+        char[] word = new char[60];
+        Arrays.fill(word, 'a');
+        BigInteger catalan = BigInteger.ONE;
+        for (int i = 0; i < word.length - 1; i++) {
+            catalan = catalan.multiply(BigInteger.valueOf(2 * (2 * i + 1))).divide(BigInteger.valueOf(i + 2));
+        }
+        assertEquals(catalan, cyk.countDerivationsExact(new String(word)));
+        assertEquals(Long.MAX_VALUE, cyk.countDerivations(new String(word)));
+        assertEquals(catalan.mod(BigInteger.valueOf(1000000007)).longValue(),
+                cyk.countDerivations(new String(word), 1000000007));
+    }
+
+    @Test
+    public void comprobarCuentaIgualQueBosque() throws CYKAlgorithmException {
+        cyk = gramaticaEquilibrada();
+
+        for (String word : palabrasAleatorias(30, 10, 8)) {
+            long trees = 0;
+            for (ParseTree tree : cyk.parseForest(word).trees()) {
+                trees++;
+            }
+            assertEquals(trees, cyk.countDerivations(word));
+            assertEquals(BigInteger.valueOf(trees), cyk.countDerivationsExact(word));
+        }
+        assertEquals(0, cyk.countDerivations("aab"));
+    }
+}
@@ -0,0 +1,195 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.AlgorithmFactory;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.EarleyAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.interfaces.CYKAlgorithmInterface;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Clase que testea el algoritmo de Earley y la elección de algoritmo.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class EarleyAlgorithmTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private static void cargarGramatica(CYKAlgorithmInterface algorithm) throws CYKAlgorithmException {
+        //Misma gramática en FNC que BasicTest: tantas a como b
+        algorithm.addNonTerminal('S');
+        algorithm.addNonTerminal('A');
+        algorithm.addNonTerminal('B');
+        algorithm.addNonTerminal('C');
+        algorithm.addNonTerminal('D');
+        algorithm.addTerminal('a');
+        algorithm.addTerminal('b');
+        algorithm.setStartSymbol('S');
+        algorithm.addProduction('S', "AB");
+        algorithm.addProduction('S', "BA");
+        algorithm.addProduction('S', "SS");
+        algorithm.addProduction('S', "AC");
+        algorithm.addProduction('S', "BD");
+        algorithm.addProduction('C', "SB");
+        algorithm.addProduction('D', "SA");
+        algorithm.addProduction('A', "a");
+        algorithm.addProduction('B', "b");
+    }
+
+    @Test
+    public void comprobarIgualQueCYK() throws CYKAlgorithmException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        cargarGramatica(cyk);
+        cargarGramatica(earley);
+
+        Random random = new Random(22);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                word.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            assertEquals(word.toString(), cyk.isDerived(word.toString()), earley.isDerived(word.toString()));
+        }
+        assertFalse(earley.isDerived(""));
+    }
+
+    @Test
+    public void comprobarGramaticaNoFNC() throws CYKAlgorithmException {
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        earley.addNonTerminal('S');
+        earley.addTerminal('a');
+        earley.addTerminal('b');
+        earley.setStartSymbol('S');
+        earley.addProduction('S', "aSb");
+        earley.addProduction('S', "");
+
+        assertTrue(earley.isDerived("ab"));
+        assertTrue(earley.isDerived("aaabbb"));
+        assertFalse(earley.isDerived("aabbb"));
+        assertFalse(earley.isDerived("ba"));
+        //La palabra vacía no se deriva, igual que con CYK
+        assertFalse(earley.isDerived(""));
+        assertTrue(earley.compile().isDerived("aabb"));
+        assertFalse(earley.compile().isDerived("abab"));
+    }
+
+    @Test
+    public void comprobarCompiladaEnCache() throws CYKAlgorithmException {
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        earley.addNonTerminal('S');
+        earley.addTerminal('a');
+        earley.addTerminal('b');
+        earley.setStartSymbol('S');
+        earley.addProduction('S', "aSb");
+        earley.addProduction('S', "ab");
+
+        CompiledGrammar compiled = earley.compile();
+        assertSame(compiled, earley.compile());
+        assertFalse(compiled.isDerived("ba"));
+
+        earley.addProduction('S', "ba");
+        assertNotSame(compiled, earley.compile());
+        assertTrue(earley.compile().isDerived("ba"));
+    }
+
+    @Test
+    public void comprobarRecursividadDerecha() throws CYKAlgorithmException {
+        //Con la optimización de Leo cada conjunto tiene un número constante de ítems
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        earley.addNonTerminal('S');
+        earley.addTerminal('a');
+        earley.addTerminal('b');
+        earley.setStartSymbol('S');
+        earley.addProduction('S', "aS");
+        earley.addProduction('S', "b");
+
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            word.append('a');
+        }
+        assertFalse(earley.isDerived(word.toString()));
+        word.append('b');
+        assertTrue(earley.isDerived(word.toString()));
+        word.append('a');
+        assertFalse(earley.isDerived(word.toString()));
+    }
+
+    @Test
+    public void comprobarEstadoAlgoritmo() throws CYKAlgorithmException {
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        earley.addNonTerminal('S');
+        earley.addTerminal('a');
+        earley.addTerminal('b');
+        earley.setStartSymbol('S');
+        earley.addProduction('S', "aSb");
+        earley.addProduction('S', "ab");
+
+        String state = earley.algorithmStateToString("ab");
+        assertTrue(state.startsWith("0:\nS::=·aSb,0\nS::=·ab,0\n1:\n"));
+        assertTrue(state.contains("2:\nS::=ab·,0\n"));
+    }
+
+    @Test
+    public void comprobarSimboloNoValido() throws CYKAlgorithmException {
+        EarleyAlgorithm earley = new EarleyAlgorithm();
+        earley.addNonTerminal('S');
+        earley.addTerminal('a');
+        earley.setStartSymbol('S');
+        earley.addProduction('S', "aS");
+        earley.addProduction('S', "a");
+
+        thrown.expect(CYKAlgorithmException.class);
+        earley.isDerived("ab");
+    }
+
+    @Test
+    public void comprobarFactoria() throws CYKAlgorithmException, IOException {
+        String cnf = "S::=AB|a\nA::=a\nB::=b\n";
+        String general = "S::=aSb|\n";
+
+        assertTrue(AlgorithmFactory.create(new StringReader(cnf), AlgorithmFactory.Engine.AUTO) instanceof CYKAlgorithm);
+        CYKAlgorithmInterface auto = AlgorithmFactory.create(new StringReader(general), AlgorithmFactory.Engine.AUTO);
+        assertTrue(auto instanceof EarleyAlgorithm);
+        CYKAlgorithmInterface cyk = AlgorithmFactory.create(new StringReader(general), AlgorithmFactory.Engine.CYK);
+        assertTrue(cyk instanceof CYKAlgorithm);
+
+        for (String word : new String[]{"ab", "aabb", "aaabbb", "aab", "abab", "ba"}) {
+            assertEquals(word, auto.isDerived(word), cyk.isDerived(word));
+        }
+        assertTrue(cyk.isDerived("aaabbb"));
+    }
+
+    @Test
+    public void comprobarFactoriaLineaNoValida() throws CYKAlgorithmException, IOException {
+        thrown.expect(CYKAlgorithmException.class);
+        AlgorithmFactory.create(new StringReader("S::=AB\nA:=a\n"), AlgorithmFactory.Engine.AUTO);
+    }
+
+    @Test
+    public void comprobarUmbralDeValiantSoloEnCYK() throws CYKAlgorithmException {
+        CYKAlgorithmInterface cyk = new CYKAlgorithm();
+        cargarGramatica(cyk);
+        cyk.setValiantThreshold(1);
+        assertTrue(cyk.isDerived("aabbab"));
+
+        CYKAlgorithmInterface earley = new EarleyAlgorithm();
+        cargarGramatica(earley);
+        thrown.expect(CYKAlgorithmException.class);
+        earley.setValiantThreshold(1);
+    }
+}
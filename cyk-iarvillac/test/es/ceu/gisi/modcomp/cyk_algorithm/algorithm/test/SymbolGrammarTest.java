@@ -0,0 +1,112 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.algorithm.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.SymbolGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Clase que testea la gramática con símbolos de nombre arbitrario.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class SymbolGrammarTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Gramática de a^length con un no terminal por cada longitud:
+     * X1::=a y Xi::=A X(i-1).
+     */
+    private static SymbolGrammar gramaticaCadena(int length) throws CYKAlgorithmException {
+        SymbolGrammar grammar = new SymbolGrammar();
+        grammar.addTerminal("a");
+        grammar.addNonTerminal("A");
+        grammar.addProduction("A", "a");
+        for (int i = 1; i <= length; i++) {
+            grammar.addNonTerminal("X" + i);
+        }
+        grammar.addProduction("X1", "a");
+        for (int i = 2; i <= length; i++) {
+            grammar.addProduction("X" + i, "A", "X" + (i - 1));
+        }
+        grammar.setStartSymbol("X" + length);
+        return grammar;
+    }
+
+    @Test
+    public void comprobarMasDe26NoTerminales() throws CYKAlgorithmException {
+        SymbolGrammar grammar = gramaticaCadena(150);
+
+        assertEquals(151, grammar.nonTerminals().size());
+        assertTrue(grammar.isDerived(Collections.nCopies(150, "a")));
+        assertFalse(grammar.isDerived(Collections.nCopies(149, "a")));
+        assertFalse(grammar.isDerived(Collections.nCopies(151, "a")));
+        assertFalse(grammar.isDerived(new ArrayList<>()));
+    }
+
+    @Test
+    public void comprobarSimbolosConNombre() throws CYKAlgorithmException {
+        SymbolGrammar grammar = new SymbolGrammar();
+        grammar.addNonTerminal("Frase");
+        grammar.addNonTerminal("Sujeto");
+        grammar.addNonTerminal("Verbo");
+        grammar.addTerminal("ana");
+        grammar.addTerminal("corre");
+        grammar.setStartSymbol("Frase");
+        grammar.addProduction("Frase", "Sujeto", "Verbo");
+        grammar.addProduction("Sujeto", "ana");
+        grammar.addProduction("Verbo", "corre");
+
+        assertTrue(grammar.isDerived(Arrays.asList("ana", "corre")));
+        assertFalse(grammar.isDerived(Arrays.asList("corre", "ana")));
+    }
+
+    @Test
+    public void comprobarTerminalDesconocido() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        SymbolGrammar grammar = gramaticaCadena(3);
+
+        grammar.isDerived(Arrays.asList("a", "b", "a"));
+    }
+
+    @Test
+    public void comprobarProduccionRepetida() throws CYKAlgorithmException {
+        thrown.expect(CYKAlgorithmException.class);
+        SymbolGrammar grammar = gramaticaCadena(3);
+
+        grammar.addProduction("X2", "A", "X1");
+    }
+
+    @Test
+    public void comprobarIgualQueGramaticaDeLetras() throws CYKAlgorithmException, IOException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        cyk.loadGrammar(new StringReader("S::=AB|BA|SS|AY|BX\nX::=SA\nY::=SB\nA::=a\nB::=b\n"));
+        SymbolGrammar grammar = cyk.toSymbolGrammar();
+
+        Random random = new Random(10);
+        for (int i = 0; i < 200; i++) {
+            List<String> word = new ArrayList<>();
+            StringBuilder letters = new StringBuilder();
+            for (int j = random.nextInt(14); j >= 0; j--) {
+                String symbol = random.nextBoolean() ? "a" : "b";
+                word.add(symbol);
+                letters.append(symbol);
+            }
+            assertEquals(cyk.isDerived(letters.toString()), grammar.isDerived(word));
+        }
+    }
+}
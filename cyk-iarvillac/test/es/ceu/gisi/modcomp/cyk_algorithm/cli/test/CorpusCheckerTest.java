@@ -0,0 +1,98 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.cli.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import es.ceu.gisi.modcomp.cyk_algorithm.cli.CorpusChecker;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Clase que testea la comprobación de corpus proyectados en memoria.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class CorpusCheckerTest {
+
+    private static CompiledGrammar gramaticaEquilibrada() throws CYKAlgorithmException, IOException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        cyk.loadGrammar(new StringReader("S::=AB|BA|SS|AY|BX\nX::=SA\nY::=SB\nA::=a\nB::=b\n"));
+        return cyk.compile();
+    }
+
+    @Test
+    public void comprobarCorpusPorTrozos() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        Random random = new Random(12);
+        StringBuilder corpus = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        long accepted = 0;
+        for (int i = 0; i < 500; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = random.nextInt(20); j >= 0; j--) {
+                word.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            if (i % 50 == 7) {
+                word.append('c');
+            }
+            boolean derived = false;
+            try {
+                derived = grammar.isDerived(word);
+                expected.append(derived ? "1\n" : "0\n");
+            } catch (CYKAlgorithmException e) {
+                expected.append("-\n");
+            }
+            accepted += derived ? 1 : 0;
+            corpus.append(word).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        corpus.append("ab");
+        expected.append("1\n");
+        accepted++;
+
+        Path input = Files.createTempFile("corpus", ".txt");
+        Path output = Files.createTempFile("resultado", ".txt");
+        try {
+            Files.write(input, corpus.toString().getBytes(StandardCharsets.US_ASCII));
+            //Trozos pequeños para que muchas palabras queden en el límite entre dos
+            CorpusChecker.Summary summary = new CorpusChecker(grammar, 100).check(input, output);
+
+            assertEquals(expected.toString(), new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+            assertEquals(accepted, summary.getAccepted());
+            assertEquals(10, summary.getInvalid());
+            assertEquals(501, summary.getAccepted() + summary.getRejected() + summary.getInvalid());
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void comprobarPalabraDemasiadoLarga() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        StringBuilder corpus = new StringBuilder("ab\n");
+        for (int i = 0; i < 50; i++) {
+            corpus.append("ab");
+        }
+        corpus.append("\nba\n");
+
+        Path input = Files.createTempFile("corpus", ".txt");
+        Path output = Files.createTempFile("resultado", ".txt");
+        try {
+            Files.write(input, corpus.toString().getBytes(StandardCharsets.US_ASCII));
+            CorpusChecker.Summary summary = new CorpusChecker(grammar, 100, 99).check(input, output);
+
+            assertEquals("1\n-\n1\n", new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+            assertEquals(2, summary.getAccepted());
+            assertEquals(1, summary.getInvalid());
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package es.ceu.gisi.modcomp.cyk_algorithm.cli.test;
+
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CYKAlgorithm;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.CompiledGrammar;
+import es.ceu.gisi.modcomp.cyk_algorithm.algorithm.exceptions.CYKAlgorithmException;
+import es.ceu.gisi.modcomp.cyk_algorithm.cli.RecognitionServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Clase que testea el servidor de reconocimiento contra un cliente local.
+ *
+ * @author Ignacio Arvilla de Caralt
+ */
+public class RecognitionServerTest {
+
+    private static CompiledGrammar gramaticaEquilibrada() throws CYKAlgorithmException, IOException {
+        CYKAlgorithm cyk = new CYKAlgorithm();
+        cyk.loadGrammar(new StringReader("S::=AB|BA|SS|AY|BX\nX::=SA\nY::=SB\nA::=a\nB::=b\n"));
+        return cyk.compile();
+    }
+
+    private static List<String> palabras(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = random.nextInt(16); j >= 0; j--) {
+                word.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            if (i % 25 == 3) {
+                word.append('c');
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static String esperado(CompiledGrammar grammar, String word) {
+        try {
+            return grammar.isDerived(word) ? "1" : "0";
+        } catch (CYKAlgorithmException e) {
+            return "-";
+        }
+    }
+
+    /**
+     * Envía todas las palabras de una vez y devuelve las respuestas.
+     */
+    private static List<String> consultar(int port, List<String> words) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write((String.join("\n", words) + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            List<String> replies = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                replies.add(in.readLine());
+            }
+            return replies;
+        }
+    }
+
+    @Test
+    public void comprobarVariosClientes() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        try (RecognitionServer server = RecognitionServer.start(grammar, 0, 1 << 14, 64)) {
+            ExecutorService clients = Executors.newFixedThreadPool(4);
+            List<List<String>> words = new ArrayList<>();
+            List<Future<List<String>>> replies = new ArrayList<>();
+            for (int c = 0; c < 4; c++) {
+                words.add(palabras(300, c));
+                List<String> mine = words.get(c);
+                replies.add(clients.submit(() -> consultar(server.getPort(), mine)));
+            }
+            for (int c = 0; c < 4; c++) {
+                List<String> received = replies.get(c).get();
+                for (int i = 0; i < received.size(); i++) {
+                    assertEquals(esperado(grammar, words.get(c).get(i)), received.get(i));
+                }
+            }
+            clients.shutdown();
+            assertEquals(1200, server.getRequests());
+            assertEquals(0, server.getRefused());
+            assertTrue(server.getBatches() <= server.getRequests());
+        }
+    }
+
+    @Test
+    public void comprobarColaLlena() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        try (RecognitionServer server = RecognitionServer.start(grammar, 0, 1, 1 << 10)) {
+            List<String> words = palabras(1000, 24);
+            List<String> received = consultar(server.getPort(), words);
+            int busy = 0;
+            for (int i = 0; i < words.size(); i++) {
+                if (RecognitionServer.BUSY.equals(received.get(i))) {
+                    busy++;
+                } else {
+                    assertEquals(esperado(grammar, words.get(i)), received.get(i));
+                }
+            }
+            assertEquals(busy, server.getRefused());
+            //Sin cola llena las palabras rechazadas se pueden reintentar
+            assertEquals(esperado(grammar, "aabb"), consultar(server.getPort(), List.of("aabb")).get(0));
+        }
+    }
+
+    @Test
+    public void comprobarPalabraDemasiadoLarga() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        try (RecognitionServer server = RecognitionServer.start(grammar, 0, 16, 16)) {
+            StringBuilder longWord = new StringBuilder();
+            while (longWord.length() <= RecognitionServer.MAX_WORD_LENGTH) {
+                longWord.append("ab");
+            }
+            List<String> received = consultar(server.getPort(), List.of(longWord.toString(), "aabb", "aab"));
+            assertEquals(List.of("-", "1", "0"), received);
+            //El servidor sigue atendiendo a otros clientes
+            assertEquals(List.of("1"), consultar(server.getPort(), List.of("ba")));
+        }
+    }
+
+    @Test
+    public void comprobarLineaIncompleta() throws Exception {
+        CompiledGrammar grammar = gramaticaEquilibrada();
+        try (RecognitionServer server = RecognitionServer.start(grammar, 0, 16, 16);
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            //Si la respuesta no llega, readLine lanza SocketTimeoutException
+            socket.setSoTimeout(3000);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            //La segunda palabra llega sin salto de línea: no debe retrasar la primera
+            out.write("aabb\naa".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals("1", in.readLine());
+
+            out.write("b\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals("0", in.readLine());
+        }
+    }
+}